@@ -0,0 +1,25 @@
+package com.github.jbduncan.guavagraphutils;
+
+import com.google.common.graph.SuccessorsFunction;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A batched form of Guava's {@link SuccessorsFunction}, which looks up the successors of many nodes
+ * at once, for backing stores where each lookup is a round trip, like a database that can look up
+ * many keys in one query. Used by {@link MoreGraphs#buildGraph(Iterable,
+ * BatchSuccessorsFunction, int)}.
+ *
+ * @param <N> the type of the nodes
+ */
+@FunctionalInterface
+public interface BatchSuccessorsFunction<N> {
+  /**
+   * Returns a map from the given nodes to their successors. Nodes that are missing from the map
+   * have no successors, and keys that are not among the given nodes are ignored.
+   *
+   * @param nodes the distinct nodes to look up the successors of, which is never empty
+   * @return a map from the given nodes to their successors
+   */
+  Map<N, ? extends Iterable<? extends N>> successors(Collection<N> nodes);
+}
@@ -0,0 +1,157 @@
+package com.github.jbduncan.guavagraphutils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.graph.SuccessorsFunction;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.time.Duration;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link SuccessorsFunction} that remembers the successors returned by another successors
+ * function, so that traversing the same nodes again, such as by calling {@link
+ * MoreGraphs#buildGraph(Iterable, SuccessorsFunction)} or {@link
+ * MoreGraphs#topologicalOrderingStartingFrom(Iterable, SuccessorsFunction)} repeatedly with
+ * overlapping starting nodes, does not look them up again. Created by {@link
+ * MoreGraphs#caching(SuccessorsFunction, CacheSpec)}.
+ *
+ * <p>The successors of each node are copied into an immutable list when they are first looked up,
+ * which is what is returned from then on, until the node is evicted as per the {@link CacheSpec}.
+ * If looking up a node's successors throws an exception, then nothing is remembered for that node.
+ *
+ * <p>Instances are thread-safe if the underlying successors function is. If several threads look
+ * up the same node at once, then only one of them calls the underlying successors function, and
+ * the others wait for its result.
+ *
+ * @param <N> the type of the nodes
+ */
+// This class purposefully expands upon an unstable Guava API
+@SuppressWarnings("UnstableApiUsage")
+public final class CachingSuccessorsFunction<N> implements SuccessorsFunction<N> {
+  /**
+   * How many successors a {@link CachingSuccessorsFunction} remembers, and for how long. By
+   * default, it remembers the successors of every node that it looks up, forever.
+   */
+  public static final class CacheSpec {
+    private long maximumSize = -1;
+    private long maximumWeight = -1;
+    private @Nullable Duration expireAfterWrite;
+
+    /**
+     * Sets the most nodes whose successors are remembered at once. When there are more, the least
+     * recently used nodes are evicted first.
+     *
+     * @throws IllegalArgumentException if {@code maximumSize} is negative
+     * @throws IllegalStateException if a {@linkplain #withMaximumWeight(long) maximum weight} is
+     *     set
+     */
+    public CacheSpec withMaximumSize(long maximumSize) {
+      checkArgument(maximumSize >= 0, "maximumSize must be non-negative but was %s", maximumSize);
+      checkState(maximumWeight < 0, "maximumSize cannot be combined with maximumWeight");
+      this.maximumSize = maximumSize;
+      return this;
+    }
+
+    /**
+     * Sets the most successors that are remembered at once, counting each node as one plus its
+     * number of successors, which is roughly proportional to the memory that they take up. When
+     * there are more, the least recently used nodes are evicted first.
+     *
+     * @throws IllegalArgumentException if {@code maximumWeight} is negative
+     * @throws IllegalStateException if a {@linkplain #withMaximumSize(long) maximum size} is set
+     */
+    public CacheSpec withMaximumWeight(long maximumWeight) {
+      checkArgument(
+          maximumWeight >= 0, "maximumWeight must be non-negative but was %s", maximumWeight);
+      checkState(maximumSize < 0, "maximumWeight cannot be combined with maximumSize");
+      this.maximumWeight = maximumWeight;
+      return this;
+    }
+
+    /**
+     * Sets how long a node's successors are remembered for after they are looked up, after which
+     * they are looked up again.
+     *
+     * @throws IllegalArgumentException if {@code expireAfterWrite} is negative
+     */
+    public CacheSpec withExpireAfterWrite(Duration expireAfterWrite) {
+      requireNonNull(expireAfterWrite, "expireAfterWrite");
+      checkArgument(
+          !expireAfterWrite.isNegative(),
+          "expireAfterWrite must be non-negative but was %s",
+          expireAfterWrite);
+      this.expireAfterWrite = expireAfterWrite;
+      return this;
+    }
+
+    private CacheBuilder<Object, Object> toCacheBuilder() {
+      CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().recordStats();
+      if (maximumSize >= 0) {
+        cacheBuilder.maximumSize(maximumSize);
+      }
+      if (maximumWeight >= 0) {
+        cacheBuilder
+            .maximumWeight(maximumWeight)
+            .weigher(
+                (Object node, Object successors) -> 1 + ((ImmutableList<?>) successors).size());
+      }
+      var expireAfterWrite = this.expireAfterWrite;
+      if (expireAfterWrite != null) {
+        cacheBuilder.expireAfterWrite(expireAfterWrite);
+      }
+      return cacheBuilder;
+    }
+  }
+
+  private final LoadingCache<N, ImmutableList<N>> cache;
+
+  CachingSuccessorsFunction(SuccessorsFunction<N> successorsFunction, CacheSpec cacheSpec) {
+    this.cache =
+        cacheSpec
+            .toCacheBuilder()
+            .build(
+                CacheLoader.from(
+                    (N node) ->
+                        ImmutableList.copyOf(
+                            requireNonNull(successorsFunction.successors(node), "successors"))));
+  }
+
+  @Override
+  public Iterable<? extends N> successors(N node) {
+    requireNonNull(node, "node");
+    try {
+      return cache.getUnchecked(node);
+    } catch (UncheckedExecutionException | ExecutionError e) {
+      Throwable cause = requireNonNull(e.getCause());
+      throwIfUnchecked(cause);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns statistics about how often the successors of a node were remembered (hits), how often
+   * they had to be looked up (misses), and how many nodes were evicted, since this was created.
+   */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /** Forgets the successors of all nodes. */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  @Override
+  public String toString() {
+    return "CachingSuccessorsFunction{size=" + cache.size() + ", stats=" + cache.stats() + "}";
+  }
+}
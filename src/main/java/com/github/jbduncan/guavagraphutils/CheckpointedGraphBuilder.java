@@ -0,0 +1,264 @@
+package com.github.jbduncan.guavagraphutils;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.graph.GraphBuilder;
+import com.google.common.graph.ImmutableGraph;
+import com.google.common.graph.MutableGraph;
+import com.google.common.graph.SuccessorsFunction;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Builds a graph as per {@link MoreGraphs#buildGraph(Iterable, SuccessorsFunction)}, whilst
+ * recording its progress in an append-only log file, so that a build that is stopped partway
+ * through, such as by a crash, can be resumed from the file.
+ *
+ * <p>Each node is looked up exactly once, in the order that it was found. The log records the
+ * starting nodes, then each node that was looked up along with its successors, in the order that
+ * they were looked up. This is enough to rebuild the whole state of the build: the graph is made
+ * of the starting nodes and the recorded edges, the visited set is the graph's nodes, and as nodes
+ * are looked up in the order that they were found, the frontier is every node found after the last
+ * one that was looked up.
+ *
+ * <p>The log starts with a header of {@link #MAGIC} and {@link #VERSION}, followed by records. Each
+ * record is the length of its payload, the payload, and a CRC-32 checksum of the payload. A
+ * payload is a type, a node and the node's successors, preceded by their count. Records are
+ * buffered and only written to disk, and {@linkplain FileChannel#force(boolean) synced}, once per
+ * checkpoint interval, so a crash loses at most one interval of work. When a build is resumed, a
+ * partly written or corrupted last record is discarded, along with anything after it.
+ */
+// This class purposefully expands upon an unstable Guava API
+@SuppressWarnings("UnstableApiUsage")
+final class CheckpointedGraphBuilder<N> {
+  // "GBCK", for "graph build checkpoint"
+  private static final int MAGIC = 0x4742434b;
+  private static final int VERSION = 1;
+  private static final int HEADER_LENGTH = 8;
+  // The length and checksum of each record
+  private static final int RECORD_OVERHEAD = 8;
+  private static final byte STARTING_NODE = 1;
+  private static final byte LOOKED_UP_NODE = 2;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final SuccessorsFunction<N> successorsFunction;
+  private final NodeSerializer<N> nodeSerializer;
+  private final long checkpointIntervalNanos;
+  private final MutableGraph<N> graph = GraphBuilder.directed().allowsSelfLoops(true).build();
+  // The nodes in the order that they were found, which is the order that they are looked up in
+  private final List<N> nodesFound = new ArrayList<>();
+  private int nodesLookedUp;
+
+  private CheckpointedGraphBuilder(
+      SuccessorsFunction<N> successorsFunction,
+      NodeSerializer<N> nodeSerializer,
+      long checkpointIntervalNanos) {
+    this.successorsFunction = successorsFunction;
+    this.nodeSerializer = nodeSerializer;
+    this.checkpointIntervalNanos = checkpointIntervalNanos;
+  }
+
+  /** Starts a build, recording its progress in a new file at the given path. */
+  static <N> ImmutableGraph<N> build(
+      Iterable<N> startingNodes,
+      SuccessorsFunction<N> successorsFunction,
+      Path checkpointPath,
+      NodeSerializer<N> nodeSerializer,
+      long checkpointIntervalNanos)
+      throws IOException {
+    var builder =
+        new CheckpointedGraphBuilder<>(successorsFunction, nodeSerializer, checkpointIntervalNanos);
+    try (FileChannel channel = FileChannel.open(checkpointPath, CREATE_NEW, WRITE)) {
+      var log = builder.new Log(channel);
+      log.writeHeader();
+      for (N node : startingNodes) {
+        if (builder.graph.addNode(node)) {
+          builder.nodesFound.add(node);
+          log.append(STARTING_NODE, node, ImmutableList.of());
+        }
+      }
+      log.sync();
+      return builder.run(log);
+    }
+  }
+
+  /** Resumes a build from the file at the given path, and keeps recording its progress there. */
+  static <N> ImmutableGraph<N> resume(
+      Path checkpointPath,
+      SuccessorsFunction<N> successorsFunction,
+      NodeSerializer<N> nodeSerializer,
+      long checkpointIntervalNanos)
+      throws IOException {
+    var builder =
+        new CheckpointedGraphBuilder<>(successorsFunction, nodeSerializer, checkpointIntervalNanos);
+    try (FileChannel channel = FileChannel.open(checkpointPath, READ, WRITE)) {
+      long end = builder.replay(channel, checkpointPath);
+      channel.truncate(end);
+      channel.position(end);
+      return builder.run(builder.new Log(channel));
+    }
+  }
+
+  private ImmutableGraph<N> run(Log log) throws IOException {
+    long lastSyncNanos = System.nanoTime();
+    try {
+      while (nodesLookedUp < nodesFound.size()) {
+        N node = nodesFound.get(nodesLookedUp);
+        var successors = ImmutableList.<N>copyOf(successorsFunction.successors(node));
+        addSuccessors(node, successors);
+        log.append(LOOKED_UP_NODE, node, successors);
+        if (System.nanoTime() - lastSyncNanos >= checkpointIntervalNanos) {
+          log.sync();
+          lastSyncNanos = System.nanoTime();
+        }
+      }
+    } catch (RuntimeException | Error e) {
+      // Save the work done so far, so that the build can be resumed after the failure is fixed.
+      try {
+        log.sync();
+      } catch (IOException syncFailure) {
+        e.addSuppressed(syncFailure);
+      }
+      throw e;
+    }
+    log.sync();
+    return ImmutableGraph.copyOf(graph);
+  }
+
+  private void addSuccessors(N node, List<N> successors) {
+    for (N successor : successors) {
+      boolean found = graph.nodes().contains(successor);
+      graph.putEdge(node, successor);
+      if (!found) {
+        nodesFound.add(successor);
+      }
+    }
+    nodesLookedUp++;
+  }
+
+  /**
+   * Rebuilds the state of the build from the records in the given file, and returns the position
+   * just after the last intact record.
+   */
+  private long replay(FileChannel channel, Path checkpointPath) throws IOException {
+    var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+    long size = channel.size();
+    if (size < HEADER_LENGTH || in.readInt() != MAGIC || in.readInt() != VERSION) {
+      throw new IOException(checkpointPath + " is not a graph build checkpoint");
+    }
+    long position = HEADER_LENGTH;
+    var crc = new CRC32();
+    while (true) {
+      int length;
+      try {
+        length = in.readInt();
+      } catch (EOFException e) {
+        break;
+      }
+      if (length <= 0 || length > size - position - RECORD_OVERHEAD) {
+        break;
+      }
+      byte[] payload = new byte[length];
+      in.readFully(payload);
+      int checksum = in.readInt();
+      crc.reset();
+      crc.update(payload);
+      if (checksum != (int) crc.getValue()) {
+        break;
+      }
+      apply(payload, checkpointPath);
+      position += length + RECORD_OVERHEAD;
+    }
+    return position;
+  }
+
+  private void apply(byte[] payload, Path checkpointPath) throws IOException {
+    var in = new DataInputStream(new ByteArrayInputStream(payload));
+    byte type = in.readByte();
+    N node = nodeSerializer.read(in);
+    int successorCount = in.readInt();
+    List<N> successors = new ArrayList<>(successorCount);
+    for (int i = 0; i < successorCount; i++) {
+      successors.add(nodeSerializer.read(in));
+    }
+
+    if (type == STARTING_NODE && nodesLookedUp == 0) {
+      if (graph.addNode(node)) {
+        nodesFound.add(node);
+      }
+    } else if (type == LOOKED_UP_NODE
+        && nodesLookedUp < nodesFound.size()
+        && nodesFound.get(nodesLookedUp).equals(node)) {
+      addSuccessors(node, successors);
+    } else {
+      throw new IOException(
+          checkpointPath + " is corrupt: unexpected record for node '" + node + "'");
+    }
+  }
+
+  /** The buffered writer of the log's records. */
+  private final class Log {
+    private final FileChannel channel;
+    private final DataOutputStream out;
+    private final PayloadBuffer payload = new PayloadBuffer();
+    private final DataOutputStream payloadOut = new DataOutputStream(payload);
+    private final CRC32 crc = new CRC32();
+
+    Log(FileChannel channel) {
+      this.channel = channel;
+      this.out =
+          new DataOutputStream(
+              new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+    }
+
+    void writeHeader() throws IOException {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+    }
+
+    void append(byte type, N node, List<N> successors) throws IOException {
+      payload.reset();
+      payloadOut.writeByte(type);
+      nodeSerializer.write(node, payloadOut);
+      payloadOut.writeInt(successors.size());
+      for (N successor : successors) {
+        nodeSerializer.write(successor, payloadOut);
+      }
+      payloadOut.flush();
+
+      crc.reset();
+      crc.update(payload.buffer(), 0, payload.size());
+      out.writeInt(payload.size());
+      out.write(payload.buffer(), 0, payload.size());
+      out.writeInt((int) crc.getValue());
+    }
+
+    /** Writes the buffered records to the file, and waits for them to reach the disk. */
+    void sync() throws IOException {
+      out.flush();
+      channel.force(false);
+    }
+  }
+
+  /** A {@link ByteArrayOutputStream} whose buffer can be read without copying it. */
+  private static final class PayloadBuffer extends ByteArrayOutputStream {
+    byte[] buffer() {
+      return buf;
+    }
+  }
+}
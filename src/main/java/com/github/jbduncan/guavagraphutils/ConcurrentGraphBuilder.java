@@ -0,0 +1,161 @@
+package com.github.jbduncan.guavagraphutils;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.graph.GraphBuilder;
+import com.google.common.graph.ImmutableGraph;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Builds a graph from a set of starting nodes and a successors function whose lookups complete
+ * asynchronously, with up to a given number of lookups in flight at once.
+ *
+ * <p>Each node is looked up exactly once: nodes are added to a concurrent visited set as soon as
+ * they are discovered, and only the thread that adds a node enqueues it. The successors of each
+ * node are recorded in a concurrent map as their lookup completes, so completing lookups never wait
+ * on each other, and the graph is only assembled from the map once every lookup has completed.
+ *
+ * <p>Lookups are started by a <i>drain loop</i>, which any thread may enter when there are nodes
+ * waiting and lookups to spare, but which only one thread runs at a time. A thread that finds the
+ * loop already running leaves a note for the running thread to go round again, rather than waiting.
+ * This means that a lookup that completes straight away, on the thread that started it, does not
+ * start the next lookup from within itself, so chains of such lookups do not overflow the stack.
+ */
+// This class purposefully expands upon an unstable Guava API
+@SuppressWarnings("UnstableApiUsage")
+final class ConcurrentGraphBuilder<N> {
+  private final Function<? super N, ? extends CompletionStage<? extends Iterable<? extends N>>>
+      lookup;
+  private final int maxInFlight;
+  private final ImmutableList<N> startingNodes;
+
+  private final Set<N> visited = ConcurrentHashMap.newKeySet();
+  private final Map<N, ImmutableList<N>> successors = new ConcurrentHashMap<>();
+  private final Queue<N> frontier = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  // The number of nodes that have been discovered but whose lookups have not completed yet
+  private final AtomicInteger pending = new AtomicInteger();
+  // The number of times that the drain loop has been asked to run, which is not zero whilst it is
+  // running
+  private final AtomicInteger drainRequests = new AtomicInteger();
+  private final CompletableFuture<ImmutableGraph<N>> result = new CompletableFuture<>();
+
+  private ConcurrentGraphBuilder(
+      Iterable<N> startingNodes,
+      Function<? super N, ? extends CompletionStage<? extends Iterable<? extends N>>> lookup,
+      int maxInFlight) {
+    this.startingNodes = ImmutableList.copyOf(startingNodes);
+    this.lookup = lookup;
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Starts building the graph, and returns a future that completes with it once every node has
+   * been looked up, or that completes exceptionally as soon as any lookup fails. Cancelling the
+   * future stops any more lookups from being started.
+   */
+  static <N> CompletableFuture<ImmutableGraph<N>> build(
+      Iterable<N> startingNodes,
+      Function<? super N, ? extends CompletionStage<? extends Iterable<? extends N>>> lookup,
+      int maxInFlight) {
+    var builder = new ConcurrentGraphBuilder<>(startingNodes, lookup, maxInFlight);
+    builder.start();
+    return builder.result;
+  }
+
+  private void start() {
+    for (N node : startingNodes) {
+      if (visited.add(node)) {
+        pending.incrementAndGet();
+        frontier.add(node);
+      }
+    }
+    if (pending.get() == 0) {
+      complete();
+      return;
+    }
+    drain();
+  }
+
+  private void drain() {
+    if (drainRequests.getAndIncrement() != 0) {
+      return;
+    }
+    int requests = 1;
+    do {
+      while (!result.isDone() && inFlight.get() < maxInFlight) {
+        N node = frontier.poll();
+        if (node == null) {
+          break;
+        }
+        inFlight.incrementAndGet();
+        lookUp(node);
+      }
+      requests = drainRequests.addAndGet(-requests);
+    } while (requests != 0);
+  }
+
+  private void lookUp(N node) {
+    CompletionStage<? extends Iterable<? extends N>> future;
+    try {
+      future = requireNonNull(lookup.apply(node), "successors future");
+    } catch (RuntimeException | Error e) {
+      result.completeExceptionally(e);
+      return;
+    }
+    future.whenComplete(
+        (nodeSuccessors, failure) -> {
+          if (failure != null) {
+            result.completeExceptionally(failure);
+            return;
+          }
+          try {
+            onSuccessors(node, requireNonNull(nodeSuccessors, "successors"));
+          } catch (RuntimeException | Error e) {
+            result.completeExceptionally(e);
+          }
+        });
+  }
+
+  private void onSuccessors(N node, Iterable<? extends N> nodeSuccessors) {
+    ImmutableList<N> copy = ImmutableList.copyOf(nodeSuccessors);
+    successors.put(node, copy);
+    for (N successor : copy) {
+      if (visited.add(successor)) {
+        pending.incrementAndGet();
+        frontier.add(successor);
+      }
+    }
+    inFlight.decrementAndGet();
+    if (pending.decrementAndGet() == 0) {
+      complete();
+    } else {
+      drain();
+    }
+  }
+
+  private void complete() {
+    if (result.isDone()) {
+      return;
+    }
+    ImmutableGraph.Builder<N> graph = GraphBuilder.directed().allowsSelfLoops(true).immutable();
+    startingNodes.forEach(graph::addNode);
+    successors.forEach(
+        (node, nodeSuccessors) -> {
+          graph.addNode(node);
+          for (N successor : nodeSuccessors) {
+            graph.putEdge(node, successor);
+          }
+        });
+    result.complete(graph.build());
+  }
+}
@@ -0,0 +1,109 @@
+package com.github.jbduncan.guavagraphutils;
+
+import java.util.Arrays;
+
+/**
+ * Solves for the hub and authority scores of an {@link IndexedGraph} with power iteration, as per
+ * Kleinberg's <a href='https://en.wikipedia.org/wiki/HITS_algorithm'>HITS algorithm</a>.
+ *
+ * <p>Each iteration is two sweeps over the nodes. The first finds each node's new authority score
+ * as the sum of the current hub scores of its predecessors, reading them from the indexed graph's
+ * predecessor offsets, and the second finds each node's new hub score as the sum of the new
+ * authority scores of its successors, reading them from its successor offsets. Neither sweep ever
+ * scatters scores.
+ *
+ * <p>As the hub scores are derived from the authority scores of the same iteration, the authority
+ * scores follow a single chain of power iterations over {@code A^T A}, where {@code A} is the
+ * graph's adjacency matrix, and the hub scores follow a single chain over {@code A A^T}. Both
+ * matrices are positive semi-definite, so the chains settle even if their dominant eigenvalue is
+ * repeated, as happens in a graph of two equally-sized stars, one pointing out and one pointing in.
+ * Updating both scores at once from the previous iteration's scores would instead interleave two
+ * chains that, in such graphs, alternate between two different vectors forever.
+ *
+ * <p>Both score vectors are normalized to sum to one after each iteration. If the graph has no
+ * edges, then all scores are zero.
+ */
+final class HitsKernel {
+  private final IndexedGraph<?> indexedGraph;
+
+  private double[] hubs;
+  private double[] authorities;
+  private double[] nextHubs;
+  private double[] nextAuthorities;
+
+  HitsKernel(IndexedGraph<?> indexedGraph) {
+    this.indexedGraph = indexedGraph;
+    int nodeCount = indexedGraph.nodeCount();
+    this.hubs = new double[nodeCount];
+    this.authorities = new double[nodeCount];
+    Arrays.fill(hubs, 1.0 / nodeCount);
+    Arrays.fill(authorities, 1.0 / nodeCount);
+    this.nextHubs = new double[nodeCount];
+    this.nextAuthorities = new double[nodeCount];
+  }
+
+  /**
+   * Runs one iteration, and returns the residual, which is the larger of the L1 norms of the
+   * changes in the hub scores and in the authority scores.
+   */
+  double iterate() {
+    int[] predecessorOffsets = indexedGraph.predecessorOffsets();
+    int[] predecessors = indexedGraph.predecessors();
+    int[] successorOffsets = indexedGraph.successorOffsets();
+    int[] successors = indexedGraph.successors();
+    double[] hubs = this.hubs;
+    double[] authorities = this.authorities;
+    double[] nextHubs = this.nextHubs;
+    double[] nextAuthorities = this.nextAuthorities;
+
+    double authoritySum = 0.0;
+    for (int node = 0; node < authorities.length; node++) {
+      double authority = 0.0;
+      for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+        authority += hubs[predecessors[i]];
+      }
+      nextAuthorities[node] = authority;
+      authoritySum += authority;
+    }
+    double authorityResidual = normalize(nextAuthorities, authoritySum, authorities);
+
+    double hubSum = 0.0;
+    for (int node = 0; node < hubs.length; node++) {
+      double hub = 0.0;
+      for (int i = successorOffsets[node]; i < successorOffsets[node + 1]; i++) {
+        hub += nextAuthorities[successors[i]];
+      }
+      nextHubs[node] = hub;
+      hubSum += hub;
+    }
+    double hubResidual = normalize(nextHubs, hubSum, hubs);
+
+    this.hubs = nextHubs;
+    this.nextHubs = hubs;
+    this.authorities = nextAuthorities;
+    this.nextAuthorities = authorities;
+    return Math.max(hubResidual, authorityResidual);
+  }
+
+  double[] hubs() {
+    return hubs;
+  }
+
+  double[] authorities() {
+    return authorities;
+  }
+
+  /**
+   * Scales the given scores to sum to one, unless they are all zero, and returns the L1 norm of
+   * their change from the previous scores.
+   */
+  private static double normalize(double[] scores, double sum, double[] previousScores) {
+    double scale = sum == 0.0 ? 0.0 : 1.0 / sum;
+    double residual = 0.0;
+    for (int node = 0; node < scores.length; node++) {
+      scores[node] *= scale;
+      residual += Math.abs(scores[node] - previousScores[node]);
+    }
+    return residual;
+  }
+}
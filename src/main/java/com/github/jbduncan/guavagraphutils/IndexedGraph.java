@@ -0,0 +1,454 @@
+package com.github.jbduncan.guavagraphutils;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.graph.Graph;
+import com.google.common.graph.ValueGraph;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An immutable snapshot of a {@link Graph}'s nodes and edges, where each node is numbered with a
+ * dense {@code int} index and the edges are stored in <a
+ * href='https://en.wikipedia.org/wiki/Sparse_matrix#Compressed_sparse_row_(CSR,_CRS_or_Yale_format)'>compressed
+ * sparse row</a> (CSR) form.
+ *
+ * <p>This allows algorithms that traverse the whole graph many times over, like {@link
+ * MoreGraphs#pageRanks(Graph) pageRanks}, to work with primitive arrays rather than hash-based
+ * lookups and boxed values.
+ *
+ * <p>If this snapshot was taken of a {@link ValueGraph} with numeric edge values, then it also
+ * stores each edge's value as a weight, aligned with the edges in {@link #predecessors()}.
+ *
+ * <p>The arrays returned by this class's methods are not copied, so they must not be modified.
+ */
+// This class purposefully expands upon an unstable Guava API
+@SuppressWarnings("UnstableApiUsage")
+final class IndexedGraph<N> {
+  private final ImmutableList<N> nodes;
+  private final ImmutableMap<N, Integer> nodeToIndex;
+  private final int[] predecessorOffsets;
+  private final int[] predecessors;
+  private final int[] outDegrees;
+  private final double @Nullable [] predecessorWeights;
+  private final double @Nullable [] outWeights;
+  private final int[] danglingNodes;
+  private @Nullable Transpose transpose;
+
+  private IndexedGraph(
+      ImmutableList<N> nodes,
+      ImmutableMap<N, Integer> nodeToIndex,
+      int[] predecessorOffsets,
+      int[] predecessors,
+      int[] outDegrees,
+      double @Nullable [] predecessorWeights,
+      double @Nullable [] outWeights) {
+    this.nodes = nodes;
+    this.nodeToIndex = nodeToIndex;
+    this.predecessorOffsets = predecessorOffsets;
+    this.predecessors = predecessors;
+    this.outDegrees = outDegrees;
+    this.predecessorWeights = predecessorWeights;
+    this.outWeights = outWeights;
+    this.danglingNodes =
+        IntStream.range(0, outDegrees.length)
+            .filter(i -> outWeights == null ? outDegrees[i] == 0 : outWeights[i] == 0.0)
+            .toArray();
+  }
+
+  static <N> IndexedGraph<N> of(Graph<N> graph) {
+    ImmutableList<N> nodes = ImmutableList.copyOf(graph.nodes());
+    ImmutableMap<N, Integer> nodeToIndex = nodeToIndex(nodes);
+    int nodeCount = nodes.size();
+
+    int[] predecessorOffsets = new int[nodeCount + 1];
+    int[] outDegrees = new int[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      N node = nodes.get(i);
+      predecessorOffsets[i + 1] = predecessorOffsets[i] + graph.predecessors(node).size();
+      outDegrees[i] = graph.outDegree(node);
+    }
+
+    int[] predecessors = new int[predecessorOffsets[nodeCount]];
+    for (int i = 0; i < nodeCount; i++) {
+      int next = predecessorOffsets[i];
+      for (N predecessor : graph.predecessors(nodes.get(i))) {
+        predecessors[next++] = requireNonNull(nodeToIndex.get(predecessor));
+      }
+    }
+
+    return new IndexedGraph<>(
+        nodes, nodeToIndex, predecessorOffsets, predecessors, outDegrees, null, null);
+  }
+
+  /**
+   * Returns a snapshot of the given value graph, where each edge's value is read once as its
+   * weight.
+   *
+   * @throws IllegalArgumentException if any edge value is negative, infinite or NaN
+   */
+  static <N> IndexedGraph<N> of(ValueGraph<N, ? extends Number> graph) {
+    ImmutableList<N> nodes = ImmutableList.copyOf(graph.nodes());
+    ImmutableMap<N, Integer> nodeToIndex = nodeToIndex(nodes);
+    int nodeCount = nodes.size();
+
+    int[] predecessorOffsets = new int[nodeCount + 1];
+    int[] outDegrees = new int[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      N node = nodes.get(i);
+      predecessorOffsets[i + 1] = predecessorOffsets[i] + graph.predecessors(node).size();
+      outDegrees[i] = graph.outDegree(node);
+    }
+
+    int[] predecessors = new int[predecessorOffsets[nodeCount]];
+    double[] predecessorWeights = new double[predecessorOffsets[nodeCount]];
+    double[] outWeights = new double[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      N node = nodes.get(i);
+      int next = predecessorOffsets[i];
+      for (N predecessor : graph.predecessors(node)) {
+        int predecessorIndex = requireNonNull(nodeToIndex.get(predecessor));
+        double weight =
+            requireNonNull(graph.edgeValueOrDefault(predecessor, node, null)).doubleValue();
+        checkArgument(
+            weight >= 0.0 && weight < Double.POSITIVE_INFINITY,
+            "Edge ('%s', '%s') must have a non-negative, finite value but was %s",
+            predecessor,
+            node,
+            weight);
+        predecessors[next] = predecessorIndex;
+        predecessorWeights[next] = weight;
+        outWeights[predecessorIndex] += weight;
+        next++;
+      }
+    }
+
+    return new IndexedGraph<>(
+        nodes,
+        nodeToIndex,
+        predecessorOffsets,
+        predecessors,
+        outDegrees,
+        predecessorWeights,
+        outWeights);
+  }
+
+  private static <N> ImmutableMap<N, Integer> nodeToIndex(ImmutableList<N> nodes) {
+    ImmutableMap.Builder<N, Integer> result = ImmutableMap.builderWithExpectedSize(nodes.size());
+    for (int i = 0; i < nodes.size(); i++) {
+      result.put(nodes.get(i), i);
+    }
+    return result.buildOrThrow();
+  }
+
+  int nodeCount() {
+    return nodes.size();
+  }
+
+  N node(int index) {
+    return nodes.get(index);
+  }
+
+  /** Returns the index of the given node, or {@code -1} if the node is not in this graph. */
+  int indexOf(N node) {
+    Integer index = nodeToIndex.get(node);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Returns the CSR row offsets of {@link #predecessors()}: the predecessors of node {@code i} are
+   * at indexes {@code [predecessorOffsets()[i], predecessorOffsets()[i + 1])}.
+   */
+  int[] predecessorOffsets() {
+    return predecessorOffsets;
+  }
+
+  /**
+   * Returns the indexes of every node's predecessors, laid out as per {@link #predecessorOffsets}.
+   */
+  int[] predecessors() {
+    return predecessors;
+  }
+
+  /** Returns the {@linkplain Graph#outDegree(Object) out-degree} of every node, by index. */
+  int[] outDegrees() {
+    return outDegrees;
+  }
+
+  /**
+   * Returns the weight of each edge in {@link #predecessors()}, at the same index, or {@code null}
+   * if this graph is unweighted.
+   */
+  double @Nullable [] predecessorWeights() {
+    return predecessorWeights;
+  }
+
+  /**
+   * Returns the sum of the weights of every node's outgoing edges, by index, or {@code null} if
+   * this graph is unweighted.
+   */
+  double @Nullable [] outWeights() {
+    return outWeights;
+  }
+
+  /**
+   * Returns every node's index in an order where, as far as possible, each node comes after its
+   * predecessors. For directed acyclic graphs, this is a topological ordering, found with Kahn's
+   * algorithm. Whenever a cycle stops Kahn's algorithm from going any further, the node that was
+   * first reached by an edge but not yet ordered is ordered next, so cycles are ordered
+   * breadth-first.
+   */
+  int[] forwardOrdering() {
+    int nodeCount = nodes.size();
+    int[] successorOffsets = successorOffsets();
+    int[] successors = successors();
+    int[] remainingInDegrees = new int[nodeCount];
+    for (int node = 0; node < nodeCount; node++) {
+      remainingInDegrees[node] = predecessorOffsets[node + 1] - predecessorOffsets[node];
+    }
+
+    int[] result = new int[nodeCount];
+    boolean[] ordered = new boolean[nodeCount];
+    int head = 0;
+    int tail = 0;
+    // Nodes that have been reached by an edge, in the order that they were first reached
+    int[] reached = new int[nodeCount];
+    boolean[] wasReached = new boolean[nodeCount];
+    int reachedHead = 0;
+    int reachedTail = 0;
+    int nextUnreached = 0;
+    for (int node = 0; node < nodeCount; node++) {
+      if (remainingInDegrees[node] == 0) {
+        result[tail++] = node;
+        ordered[node] = true;
+      }
+    }
+    while (tail < nodeCount) {
+      if (head == tail) {
+        // Kahn's algorithm is stuck on a cycle, so break into it.
+        int node = -1;
+        while (reachedHead < reachedTail && node < 0) {
+          int candidate = reached[reachedHead++];
+          if (!ordered[candidate]) {
+            node = candidate;
+          }
+        }
+        while (node < 0) {
+          if (!ordered[nextUnreached]) {
+            node = nextUnreached;
+          }
+          nextUnreached++;
+        }
+        result[tail++] = node;
+        ordered[node] = true;
+      }
+
+      int node = result[head++];
+      for (int i = successorOffsets[node]; i < successorOffsets[node + 1]; i++) {
+        int successor = successors[i];
+        if (ordered[successor]) {
+          continue;
+        }
+        if (--remainingInDegrees[successor] == 0) {
+          result[tail++] = successor;
+          ordered[successor] = true;
+        } else if (!wasReached[successor]) {
+          wasReached[successor] = true;
+          reached[reachedTail++] = successor;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns a copy of this graph with its nodes renumbered, so that the node at index {@code i} of
+   * the copy is the node at index {@code order[i]} of this graph.
+   */
+  IndexedGraph<N> renumbered(int[] order) {
+    int nodeCount = nodes.size();
+    int[] newIndexes = new int[nodeCount];
+    ImmutableList.Builder<N> newNodes = ImmutableList.builderWithExpectedSize(nodeCount);
+    for (int i = 0; i < nodeCount; i++) {
+      newIndexes[order[i]] = i;
+      newNodes.add(nodes.get(order[i]));
+    }
+
+    int[] newPredecessorOffsets = new int[nodeCount + 1];
+    int[] newPredecessors = new int[predecessors.length];
+    double @Nullable [] newPredecessorWeights =
+        predecessorWeights == null ? null : new double[predecessorWeights.length];
+    int[] newOutDegrees = new int[nodeCount];
+    double @Nullable [] newOutWeights = outWeights == null ? null : new double[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      int node = order[i];
+      int next = newPredecessorOffsets[i];
+      for (int j = predecessorOffsets[node]; j < predecessorOffsets[node + 1]; j++) {
+        newPredecessors[next] = newIndexes[predecessors[j]];
+        if (newPredecessorWeights != null && predecessorWeights != null) {
+          newPredecessorWeights[next] = predecessorWeights[j];
+        }
+        next++;
+      }
+      newPredecessorOffsets[i + 1] = next;
+      newOutDegrees[i] = outDegrees[node];
+      if (newOutWeights != null && outWeights != null) {
+        newOutWeights[i] = outWeights[node];
+      }
+    }
+
+    ImmutableList<N> renumberedNodes = newNodes.build();
+    return new IndexedGraph<>(
+        renumberedNodes,
+        nodeToIndex(renumberedNodes),
+        newPredecessorOffsets,
+        newPredecessors,
+        newOutDegrees,
+        newPredecessorWeights,
+        newOutWeights);
+  }
+
+  /**
+   * Returns every node's index in breadth-first order, following edges in both directions, so
+   * that nodes that are near each other in the graph are near each other in the order. Each part
+   * of the graph that is not connected to the parts before it is started from its lowest index.
+   */
+  int[] breadthFirstOrdering() {
+    int nodeCount = nodes.size();
+    int[] successorOffsets = successorOffsets();
+    int[] successors = successors();
+    int[] result = new int[nodeCount];
+    boolean[] visited = new boolean[nodeCount];
+    int head = 0;
+    int tail = 0;
+    for (int start = 0; start < nodeCount; start++) {
+      if (visited[start]) {
+        continue;
+      }
+      visited[start] = true;
+      result[tail++] = start;
+      while (head < tail) {
+        int node = result[head++];
+        for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+          int predecessor = predecessors[i];
+          if (!visited[predecessor]) {
+            visited[predecessor] = true;
+            result[tail++] = predecessor;
+          }
+        }
+        for (int i = successorOffsets[node]; i < successorOffsets[node + 1]; i++) {
+          int successor = successors[i];
+          if (!visited[successor]) {
+            visited[successor] = true;
+            result[tail++] = successor;
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns every node's index in descending order of out-degree, with ties in index order. Nodes
+   * with many successors are read the most often when gathering predecessors, so this packs the
+   * most often read nodes together.
+   */
+  int[] degreeOrdering() {
+    // Counting sort, as there are at most as many distinct out-degrees as nodes
+    int maxOutDegree = 0;
+    for (int outDegree : outDegrees) {
+      maxOutDegree = Math.max(maxOutDegree, outDegree);
+    }
+    int[] offsets = new int[maxOutDegree + 2];
+    for (int outDegree : outDegrees) {
+      offsets[maxOutDegree - outDegree + 1]++;
+    }
+    for (int i = 0; i <= maxOutDegree; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    int[] result = new int[outDegrees.length];
+    for (int node = 0; node < outDegrees.length; node++) {
+      result[offsets[maxOutDegree - outDegrees[node]]++] = node;
+    }
+    return result;
+  }
+
+  /**
+   * Returns the CSR row offsets of {@link #successors()}: the successors of node {@code i} are at
+   * indexes {@code [successorOffsets()[i], successorOffsets()[i + 1])}.
+   *
+   * <p>The successors are worked out from the predecessors the first time that they are needed.
+   */
+  int[] successorOffsets() {
+    return transpose().successorOffsets;
+  }
+
+  /** Returns the indexes of every node's successors, laid out as per {@link #successorOffsets}. */
+  int[] successors() {
+    return transpose().successors;
+  }
+
+  /**
+   * Returns the weight of each edge in {@link #successors()}, at the same index, or {@code null}
+   * if this graph is unweighted.
+   */
+  double @Nullable [] successorWeights() {
+    return transpose().successorWeights;
+  }
+
+  private synchronized Transpose transpose() {
+    var result = transpose;
+    if (result == null) {
+      result = new Transpose(nodes.size(), predecessorOffsets, predecessors, predecessorWeights);
+      transpose = result;
+    }
+    return result;
+  }
+
+  /** The edges laid out by source node rather than by target node. */
+  private static final class Transpose {
+    final int[] successorOffsets;
+    final int[] successors;
+    final double @Nullable [] successorWeights;
+
+    Transpose(
+        int nodeCount,
+        int[] predecessorOffsets,
+        int[] predecessors,
+        double @Nullable [] predecessorWeights) {
+      successorOffsets = new int[nodeCount + 1];
+      for (int predecessor : predecessors) {
+        successorOffsets[predecessor + 1]++;
+      }
+      for (int node = 0; node < nodeCount; node++) {
+        successorOffsets[node + 1] += successorOffsets[node];
+      }
+      successors = new int[predecessors.length];
+      double @Nullable [] weights =
+          predecessorWeights == null ? null : new double[predecessorWeights.length];
+      int[] next = Arrays.copyOf(successorOffsets, nodeCount);
+      for (int node = 0; node < nodeCount; node++) {
+        for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+          int edge = next[predecessors[i]]++;
+          successors[edge] = node;
+          if (weights != null && predecessorWeights != null) {
+            weights[edge] = predecessorWeights[i];
+          }
+        }
+      }
+      successorWeights = weights;
+    }
+  }
+
+  /**
+   * Returns the indexes of the <i>dangling</i> nodes, that is, the nodes without successors, or
+   * whose outgoing edges all have a weight of zero.
+   */
+  int[] danglingNodes() {
+    return danglingNodes;
+  }
+}
@@ -1,23 +1,27 @@
 package com.github.jbduncan.guavagraphutils;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static com.google.common.collect.Multisets.toMultiset;
 import static com.google.common.collect.Queues.newArrayDeque;
+import static java.util.Collections.unmodifiableList;
 import static java.util.Collections.unmodifiableSet;
-import static java.util.Comparator.reverseOrder;
-import static java.util.Map.Entry.comparingByValue;
 import static java.util.Objects.requireNonNull;
 import static java.util.stream.Collectors.toCollection;
 
+import com.github.jbduncan.guavagraphutils.CachingSuccessorsFunction.CacheSpec;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ForwardingSet;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
+import com.google.common.collect.Streams;
 import com.google.common.collect.Table;
 import com.google.common.graph.AbstractGraph;
 import com.google.common.graph.AbstractValueGraph;
@@ -25,26 +29,46 @@ import com.google.common.graph.ElementOrder;
 import com.google.common.graph.EndpointPair;
 import com.google.common.graph.Graph;
 import com.google.common.graph.GraphBuilder;
+import com.google.common.graph.Graphs;
 import com.google.common.graph.ImmutableGraph;
 import com.google.common.graph.MutableGraph;
 import com.google.common.graph.SuccessorsFunction;
 import com.google.common.graph.ValueGraph;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import org.jspecify.annotations.Nullable;
 
 // This class purposefully expands upon an unstable Guava API
 @SuppressWarnings("UnstableApiUsage")
 public final class MoreGraphs {
 
-  private static final String NODE_IS_NOT_IN_THIS_GRAPH = "Node '%s' is not in this graph";
+  static final String NODE_IS_NOT_IN_THIS_GRAPH = "Node '%s' is not in this graph";
   private static final String GRAPH_HAS_AT_LEAST_ONE_CYCLE = "graph has at least one cycle";
   private static final String SUCCESSORS_FUNCTION_HAS_AT_LEAST_ONE_CYCLE =
       "successors function has at least one cycle";
@@ -109,6 +133,757 @@ public final class MoreGraphs {
     return ImmutableGraph.copyOf(result);
   }
 
+  /**
+   * Returns a lazy stream of the edges of the graph that {@link #buildGraph(Iterable,
+   * SuccessorsFunction)} would build, without building it, for graphs that are too large to hold
+   * in memory but whose edges can be written to a file or aggregated as they are found.
+   *
+   * <p>The successors function is applied in the same breadth-first manner as {@code buildGraph},
+   * but only as the stream is consumed. Each node is looked up exactly once, the first time that
+   * it is found, and its edges are emitted straight away, each of them once. Besides the queue of
+   * nodes left to look up, the only memory used is the set of nodes visited so far; see {@link
+   * #traverseReachable(Iterable, SuccessorsFunction, Funnel, long, double)} for a more compact but
+   * approximate visited set.
+   *
+   * <p>Only edges are emitted, so starting nodes without successors do not appear in the stream.
+   * The stream is sequential and not thread-safe, and can only be consumed once.
+   *
+   * @param startingNodes the set of nodes to start from
+   * @param successorsFunction the function to apply to the starting nodes and their descendants in
+   *     a breadth-first manner; can represent any kind of graph, including cyclic graphs
+   * @param <N> the type of the nodes
+   * @return a lazy stream of the directed edges reachable from the starting nodes, in breadth-first
+   *     order
+   */
+  public static <N> Stream<EndpointPair<N>> traverseReachable(
+      Iterable<N> startingNodes, SuccessorsFunction<N> successorsFunction) {
+    requireNonNull(startingNodes, "startingNodes");
+    requireNonNull(successorsFunction, "successorsFunction");
+
+    return Streams.stream(
+        () -> {
+          Set<N> visited = new HashSet<>();
+          return new ReachableEdges<>(startingNodes, successorsFunction, visited::add);
+        });
+  }
+
+  /**
+   * Returns a lazy stream of the edges reachable from the given starting nodes, as per {@link
+   * #traverseReachable(Iterable, SuccessorsFunction)}, but keeps track of the visited nodes with a
+   * {@linkplain BloomFilter Bloom filter} rather than a set, for traversals with hundreds of
+   * millions of nodes. The Bloom filter takes a fixed amount of memory, which is about 10 bits per
+   * expected node for a false positive probability of 1%, no matter how large the nodes are.
+   *
+   * <p>The visited set is approximate: a node that was not visited before may be mistaken for one
+   * that was, with about the given false positive probability once the expected number of nodes
+   * have been visited, in which case its edge is emitted but it is not looked up, so its own edges
+   * and any descendants that are only reachable through it are missed. A node is never looked up
+   * more than once.
+   *
+   * @param startingNodes the set of nodes to start from
+   * @param successorsFunction the function to apply to the starting nodes and their descendants in
+   *     a breadth-first manner; can represent any kind of graph, including cyclic graphs
+   * @param funnel the funnel to hash the nodes with, which must be consistent with their {@link
+   *     Object#equals(Object) equals()} methods
+   * @param expectedNodes the number of nodes that are expected to be visited
+   * @param falsePositiveProbability the desired probability of mistaking a node for a visited one
+   *     once the expected number of nodes have been visited
+   * @param <N> the type of the nodes
+   * @return a lazy stream of the directed edges reachable from the starting nodes, in breadth-first
+   *     order, possibly missing some of them
+   * @throws IllegalArgumentException if {@code expectedNodes} is negative, or if {@code
+   *     falsePositiveProbability} is not strictly between 0 and 1
+   */
+  public static <N> Stream<EndpointPair<N>> traverseReachable(
+      Iterable<N> startingNodes,
+      SuccessorsFunction<N> successorsFunction,
+      Funnel<? super N> funnel,
+      long expectedNodes,
+      double falsePositiveProbability) {
+    requireNonNull(startingNodes, "startingNodes");
+    requireNonNull(successorsFunction, "successorsFunction");
+    requireNonNull(funnel, "funnel");
+    checkArgument(
+        expectedNodes >= 0, "expectedNodes must be non-negative but was %s", expectedNodes);
+    checkArgument(
+        falsePositiveProbability > 0.0 && falsePositiveProbability < 1.0,
+        "falsePositiveProbability must be between 0 and 1 but was %s",
+        falsePositiveProbability);
+
+    return Streams.stream(
+        () -> {
+          BloomFilter<N> visited =
+              BloomFilter.create(funnel, expectedNodes, falsePositiveProbability);
+          return new ReachableEdges<>(startingNodes, successorsFunction, visited::put);
+        });
+  }
+
+  /**
+   * Returns the same graph as {@link #buildGraph(Iterable, SuccessorsFunction)}, but as an
+   * immutable graph that takes much less memory, both when finished and while it is being built.
+   *
+   * <p>Rather than adding each edge to a mutable graph and then copying it into an immutable one,
+   * which holds two full copies of the graph at once, this method numbers the nodes as it finds
+   * them and appends each node's successors to a growable array of node numbers, which becomes the
+   * finished graph's index of successors. An index of predecessors is then built from it. The
+   * finished graph takes about eight bytes per edge, plus the nodes and a map from each node to its
+   * number, and {@link Graph#hasEdgeConnecting(Object, Object) hasEdgeConnecting} is a binary
+   * search within a contiguous array.
+   *
+   * <p>The successors function is called exactly once for each node in the resulting graph. The
+   * resulting graph is directed, allows self-loops and iterates its nodes in breadth-first order.
+   * Its successors, predecessors and adjacent nodes are returned in an unspecified order.
+   *
+   * @param startingNodes the set of nodes to start from
+   * @param successorsFunction the function to apply to the starting nodes and their descendants in
+   *     a breadth-first manner; can represent any kind of graph, including cyclic graphs
+   * @param <N> the type of the nodes
+   * @return an immutable directed graph representing the breadth-first traversal of the successors
+   *     function with the given starting nodes
+   * @throws IllegalStateException if the graph has more than about two billion edges
+   */
+  public static <N> Graph<N> buildCompactGraph(
+      Iterable<N> startingNodes, SuccessorsFunction<N> successorsFunction) {
+    requireNonNull(startingNodes, "startingNodes");
+    requireNonNull(successorsFunction, "successorsFunction");
+
+    return CompactGraph.build(startingNodes, successorsFunction);
+  }
+
+  /**
+   * Returns the same graph as {@link #buildGraph(Iterable, SuccessorsFunction)}, but looks up the
+   * successors of up to {@code batchSize} nodes at a time with the given {@linkplain
+   * BatchSuccessorsFunction batch successors function}.
+   *
+   * <p>The graph is traversed one breadth-first level at a time: the starting nodes, then their
+   * children, then their grand-children, and so on. Each level's nodes are looked up in batches of
+   * {@code batchSize}, so a level of {@code n} nodes takes {@code ceil(n / batchSize)} calls to
+   * the batch successors function. Each node is looked up exactly once.
+   *
+   * @param startingNodes the set of nodes to start from
+   * @param batchSuccessorsFunction the function to apply to batches of the starting nodes and
+   *     their descendants; can represent any kind of graph, including cyclic graphs
+   * @param batchSize the most nodes to look up in each call to the batch successors function
+   * @param <N> the type of the nodes
+   * @return an immutable directed graph representing the breadth-first traversal of the batch
+   *     successors function with the given starting nodes
+   * @throws IllegalArgumentException if {@code batchSize} is not positive
+   */
+  public static <N> ImmutableGraph<N> buildGraph(
+      Iterable<N> startingNodes,
+      BatchSuccessorsFunction<N> batchSuccessorsFunction,
+      int batchSize) {
+    requireNonNull(startingNodes, "startingNodes");
+    requireNonNull(batchSuccessorsFunction, "batchSuccessorsFunction");
+    checkArgument(batchSize > 0, "batchSize must be positive but was %s", batchSize);
+
+    MutableGraph<N> result = GraphBuilder.directed().allowsSelfLoops(true).build();
+    Set<N> visited = new HashSet<>();
+    List<N> level = new ArrayList<>();
+    for (N node : startingNodes) {
+      result.addNode(node);
+      if (visited.add(node)) {
+        level.add(node);
+      }
+    }
+    while (!level.isEmpty()) {
+      List<N> nextLevel = new ArrayList<>();
+      for (List<N> batch : Lists.partition(level, batchSize)) {
+        var batchSuccessors =
+            requireNonNull(
+                batchSuccessorsFunction.successors(unmodifiableList(batch)), "batchSuccessors");
+        for (N node : batch) {
+          Iterable<? extends N> successors = batchSuccessors.get(node);
+          if (successors == null) {
+            continue;
+          }
+          for (N successor : successors) {
+            result.putEdge(node, successor);
+            if (visited.add(successor)) {
+              nextLevel.add(successor);
+            }
+          }
+        }
+      }
+      level = nextLevel;
+    }
+    return ImmutableGraph.copyOf(result);
+  }
+
+  /**
+   * Returns the same graph as {@link #buildGraph(Iterable, SuccessorsFunction)}, built as per the
+   * given options, along with statistics about how it was built.
+   *
+   * <p>If the options set limits on the graph's depth, size or build time, then the build stops
+   * once it reaches one of them, and returns the graph built so far, which is a subgraph of the
+   * full graph, along with its {@linkplain GraphBuild#frontier() frontier}: the nodes that were
+   * left to look up. The build can then be continued with {@link #resumeBuildGraph}, so exploring
+   * a graph that is too large to build at once can be paged.
+   *
+   * @param startingNodes the set of nodes to start from
+   * @param successorsFunction the function to apply to the starting nodes and their descendants in
+   *     a breadth-first manner; can represent any kind of graph, including cyclic graphs
+   * @param options the options to build the graph with
+   * @param <N> the type of the nodes
+   * @return the graph representing the breadth-first traversal of the successors function with the
+   *     given starting nodes, or as much of it as the options' limits allow, and statistics about
+   *     how it was built
+   */
+  public static <N> GraphBuild<N> buildGraph(
+      Iterable<N> startingNodes,
+      SuccessorsFunction<N> successorsFunction,
+      GraphBuildOptions options) {
+    requireNonNull(startingNodes, "startingNodes");
+    requireNonNull(successorsFunction, "successorsFunction");
+    requireNonNull(options, "options");
+
+    boolean perNode = options.deduplication == GraphBuildOptions.Deduplication.PER_NODE;
+    MutableGraph<N> result = GraphBuilder.directed().allowsSelfLoops(true).build();
+    Deque<N> nodesRemaining = new ArrayDeque<>();
+    long successorsCallsSaved = 0;
+    for (N node : startingNodes) {
+      // The graph's nodes double as the visited set.
+      if (result.addNode(node) || !perNode) {
+        nodesRemaining.add(node);
+      } else {
+        successorsCallsSaved++;
+      }
+    }
+    return continueBuildingGraph(
+        result, nodesRemaining, successorsFunction, options, successorsCallsSaved);
+  }
+
+  /**
+   * Continues a build by {@link #buildGraph(Iterable, SuccessorsFunction, GraphBuildOptions)}
+   * that was stopped by one of its options' limits, by looking up the nodes in its {@linkplain
+   * GraphBuild#frontier() frontier}, and returns the graph built so far.
+   *
+   * <p>The given options may differ from those of the original build. Their limits count from
+   * where the original build stopped, so the same options can be used to page through a graph a
+   * few nodes at a time. For example:
+   *
+   * <pre>{@code
+   * var options = new GraphBuildOptions().withMaxNodes(10_000);
+   * var build = MoreGraphs.buildGraph(startingNodes, successorsFunction, options);
+   * while (!build.complete()) {
+   *   build = MoreGraphs.resumeBuildGraph(build, successorsFunction, options);
+   * }
+   * }</pre>
+   *
+   * <p>The nodes of the frontier all count as being at depth zero, as far as the {@linkplain
+   * GraphBuildOptions#withMaxDepth(int) maximum depth} is concerned.
+   *
+   * @param partialBuild the result of the build to continue
+   * @param successorsFunction the same successors function that the build was started with
+   * @param options the options to continue the build with
+   * @param <N> the type of the nodes
+   * @return the graph representing the breadth-first traversal of the successors function, or as
+   *     much of it as the options' limits allow, and statistics about how it was built since being
+   *     resumed
+   */
+  public static <N> GraphBuild<N> resumeBuildGraph(
+      GraphBuild<N> partialBuild,
+      SuccessorsFunction<N> successorsFunction,
+      GraphBuildOptions options) {
+    requireNonNull(partialBuild, "partialBuild");
+    requireNonNull(successorsFunction, "successorsFunction");
+    requireNonNull(options, "options");
+
+    return continueBuildingGraph(
+        Graphs.copyOf(partialBuild.graph()),
+        new ArrayDeque<>(partialBuild.frontier()),
+        successorsFunction,
+        options,
+        0);
+  }
+
+  /**
+   * Returns the same graph as {@link #buildGraph(Iterable, SuccessorsFunction)}, whilst saving the
+   * build's progress to a new file at the given path, so that if the build is stopped partway
+   * through, for example by a crash, it can be continued with {@link
+   * #resumeBuildGraphFromCheckpoint} instead of starting over.
+   *
+   * <p>The file is an append-only log of the nodes that have been looked up and their successors,
+   * from which the graph built so far, the visited nodes and the nodes left to look up are rebuilt
+   * when the build is resumed. To keep the cost of writing it low, the log is buffered in memory
+   * and only written to disk and synced once per checkpoint interval, so a crash loses at most the
+   * lookups made in the last interval. Each node is looked up once, no matter how many times it is
+   * found.
+   *
+   * <p>The file is kept after the build completes, and can be deleted by the caller.
+   *
+   * @param startingNodes the set of nodes to start from
+   * @param successorsFunction the function to apply to the starting nodes and their descendants in
+   *     a breadth-first manner; can represent any kind of graph, including cyclic graphs
+   * @param checkpointPath the path of the file to save the build's progress to, which must not
+   *     already exist
+   * @param nodeSerializer the serializer to write the nodes to the file with
+   * @param checkpointInterval how often to save the build's progress to disk
+   * @param <N> the type of the nodes
+   * @return the graph representing the breadth-first traversal of the successors function with the
+   *     given starting nodes
+   * @throws java.nio.file.FileAlreadyExistsException if a file already exists at the given path
+   * @throws IOException if the file could not be written to
+   */
+  public static <N> ImmutableGraph<N> buildGraphWithCheckpoints(
+      Iterable<N> startingNodes,
+      SuccessorsFunction<N> successorsFunction,
+      Path checkpointPath,
+      NodeSerializer<N> nodeSerializer,
+      Duration checkpointInterval)
+      throws IOException {
+    requireNonNull(startingNodes, "startingNodes");
+    requireNonNull(successorsFunction, "successorsFunction");
+    requireNonNull(checkpointPath, "checkpointPath");
+    requireNonNull(nodeSerializer, "nodeSerializer");
+    checkCheckpointInterval(checkpointInterval);
+
+    return CheckpointedGraphBuilder.build(
+        startingNodes,
+        successorsFunction,
+        checkpointPath,
+        nodeSerializer,
+        saturatedNanos(checkpointInterval));
+  }
+
+  /**
+   * Continues a build by {@link #buildGraphWithCheckpoints} from the last progress that it saved to
+   * the file at the given path, and returns the whole graph. The build keeps saving its progress
+   * to the same file, so it can be resumed again if it is stopped again.
+   *
+   * <p>If the build was stopped whilst writing to the file, then the partly written end of the
+   * file is discarded, and the nodes whose lookups were lost are looked up again. If the build had
+   * already completed, then its graph is returned without looking up any nodes.
+   *
+   * @param checkpointPath the path of the file that the build saved its progress to
+   * @param successorsFunction the same successors function that the build was started with
+   * @param nodeSerializer the same serializer that the build was started with
+   * @param checkpointInterval how often to save the build's progress to disk
+   * @param <N> the type of the nodes
+   * @return the graph representing the breadth-first traversal of the successors function with the
+   *     build's starting nodes
+   * @throws IOException if the file could not be read or written to, or is not a file written by
+   *     {@link #buildGraphWithCheckpoints}
+   */
+  public static <N> ImmutableGraph<N> resumeBuildGraphFromCheckpoint(
+      Path checkpointPath,
+      SuccessorsFunction<N> successorsFunction,
+      NodeSerializer<N> nodeSerializer,
+      Duration checkpointInterval)
+      throws IOException {
+    requireNonNull(checkpointPath, "checkpointPath");
+    requireNonNull(successorsFunction, "successorsFunction");
+    requireNonNull(nodeSerializer, "nodeSerializer");
+    checkCheckpointInterval(checkpointInterval);
+
+    return CheckpointedGraphBuilder.resume(
+        checkpointPath, successorsFunction, nodeSerializer, saturatedNanos(checkpointInterval));
+  }
+
+  private static void checkCheckpointInterval(Duration checkpointInterval) {
+    requireNonNull(checkpointInterval, "checkpointInterval");
+    checkArgument(
+        !checkpointInterval.isNegative(),
+        "checkpointInterval must be non-negative but was %s",
+        checkpointInterval);
+  }
+
+  private static <N> GraphBuild<N> continueBuildingGraph(
+      MutableGraph<N> result,
+      Deque<N> nodesRemaining,
+      SuccessorsFunction<N> successorsFunction,
+      GraphBuildOptions options,
+      long successorsCallsSaved) {
+    long startNanos = System.nanoTime();
+    var deadline = options.deadline;
+    long deadlineNanos = deadline == null ? Long.MAX_VALUE : saturatedNanos(deadline);
+    boolean perNode = options.deduplication == GraphBuildOptions.Deduplication.PER_NODE;
+
+    // The nodes of each breadth-first level are looked up in turn, before those of the next level.
+    Deque<N> level = nodesRemaining;
+    Deque<N> nextLevel = new ArrayDeque<>();
+    int initialNodeCount = result.nodes().size();
+    long edgesAdded = 0;
+    long successorsCalls = 0;
+    int depth = 0;
+    boolean complete = true;
+    build:
+    while (!level.isEmpty()) {
+      if (depth == options.maxDepth) {
+        complete = false;
+        break;
+      }
+      while (!level.isEmpty()) {
+        if (result.nodes().size() - initialNodeCount >= options.maxNodes
+            || edgesAdded >= options.maxEdges
+            || System.nanoTime() - startNanos >= deadlineNanos) {
+          complete = false;
+          break build;
+        }
+        N next = level.remove();
+        successorsCalls++;
+        for (N successor : successorsFunction.successors(next)) {
+          if (perNode) {
+            boolean visited = result.nodes().contains(successor);
+            if (result.putEdge(next, successor)) {
+              edgesAdded++;
+              if (visited) {
+                successorsCallsSaved++;
+              }
+            }
+            if (!visited) {
+              nextLevel.add(successor);
+            }
+          } else if (!result.hasEdgeConnecting(next, successor)) {
+            nextLevel.add(successor);
+            result.putEdge(next, successor);
+            edgesAdded++;
+          }
+        }
+      }
+      Deque<N> tmp = level;
+      level = nextLevel;
+      nextLevel = tmp;
+      depth++;
+    }
+
+    var frontier = ImmutableSet.<N>builder().addAll(level).addAll(nextLevel).build();
+    return new GraphBuild<>(
+        ImmutableGraph.copyOf(result), frontier, complete, successorsCalls, successorsCallsSaved);
+  }
+
+  /**
+   * Options for {@link #buildGraph(Iterable, SuccessorsFunction, GraphBuildOptions)}. By default,
+   * the graph is built exactly as {@link #buildGraph(Iterable, SuccessorsFunction)} builds it.
+   */
+  public static final class GraphBuildOptions {
+    /** How the nodes to look up the successors of are deduplicated. */
+    public enum Deduplication {
+      /**
+       * A node is looked up again each time it is found through an edge that has not been found
+       * before, so a node with many predecessors is looked up many times. This is how {@link
+       * MoreGraphs#buildGraph(Iterable, SuccessorsFunction)} deduplicates nodes, and is the
+       * default.
+       */
+      PER_EDGE,
+      /**
+       * Each node is looked up exactly once, the first time that it is found. This gives the same
+       * graph as {@link #PER_EDGE} for any successors function that always returns the same
+       * successors for the same node, with fewer lookups.
+       */
+      PER_NODE
+    }
+
+    private Deduplication deduplication = Deduplication.PER_EDGE;
+    private int maxDepth = Integer.MAX_VALUE;
+    private int maxNodes = Integer.MAX_VALUE;
+    private long maxEdges = Long.MAX_VALUE;
+    private @Nullable Duration deadline;
+
+    /** Sets how the nodes to look up the successors of are deduplicated. */
+    public GraphBuildOptions withDeduplication(Deduplication deduplication) {
+      this.deduplication = requireNonNull(deduplication, "deduplication");
+      return this;
+    }
+
+    /**
+     * Sets the most edges that the build may follow away from the starting nodes. Nodes at this
+     * depth are added to the graph, but are left in the frontier rather than being looked up, so a
+     * {@code maxDepth} of zero gives a graph of just the starting nodes. By default, there is no
+     * maximum depth.
+     *
+     * @throws IllegalArgumentException if {@code maxDepth} is negative
+     */
+    public GraphBuildOptions withMaxDepth(int maxDepth) {
+      checkArgument(maxDepth >= 0, "maxDepth must be non-negative but was %s", maxDepth);
+      this.maxDepth = maxDepth;
+      return this;
+    }
+
+    /**
+     * Sets how many nodes the build may add to the graph, not counting the starting nodes, before
+     * it stops. This is checked before each call to the successors function, so the graph can
+     * overshoot it by the successors of one node. By default, there is no maximum.
+     *
+     * @throws IllegalArgumentException if {@code maxNodes} is not positive
+     */
+    public GraphBuildOptions withMaxNodes(int maxNodes) {
+      checkArgument(maxNodes > 0, "maxNodes must be positive but was %s", maxNodes);
+      this.maxNodes = maxNodes;
+      return this;
+    }
+
+    /**
+     * Sets how many edges the build may add to the graph before it stops. This is checked before
+     * each call to the successors function, so the graph can overshoot it by the successors of one
+     * node. By default, there is no maximum.
+     *
+     * @throws IllegalArgumentException if {@code maxEdges} is not positive
+     */
+    public GraphBuildOptions withMaxEdges(long maxEdges) {
+      checkArgument(maxEdges > 0, "maxEdges must be positive but was %s", maxEdges);
+      this.maxEdges = maxEdges;
+      return this;
+    }
+
+    /**
+     * Sets how long the build may take, counting from when it starts. The deadline is checked
+     * before each call to the successors function, so a build can overshoot it by up to one call.
+     * By default, builds have no deadline.
+     *
+     * @throws IllegalArgumentException if {@code deadline} is negative
+     */
+    public GraphBuildOptions withDeadline(Duration deadline) {
+      requireNonNull(deadline, "deadline");
+      checkArgument(!deadline.isNegative(), "deadline must be non-negative but was %s", deadline);
+      this.deadline = deadline;
+      return this;
+    }
+  }
+
+  /**
+   * The result of {@link #buildGraph(Iterable, SuccessorsFunction, GraphBuildOptions)}: the graph,
+   * or as much of it as the options' limits allowed, and statistics about how it was built.
+   */
+  public static final class GraphBuild<N> {
+    private final ImmutableGraph<N> graph;
+    private final ImmutableSet<N> frontier;
+    private final boolean complete;
+    private final long successorsCalls;
+    private final long successorsCallsSaved;
+
+    private GraphBuild(
+        ImmutableGraph<N> graph,
+        ImmutableSet<N> frontier,
+        boolean complete,
+        long successorsCalls,
+        long successorsCallsSaved) {
+      this.graph = graph;
+      this.frontier = frontier;
+      this.complete = complete;
+      this.successorsCalls = successorsCalls;
+      this.successorsCallsSaved = successorsCallsSaved;
+    }
+
+    /** Returns the graph that was built. */
+    public ImmutableGraph<N> graph() {
+      return graph;
+    }
+
+    /**
+     * Returns the nodes that were left to look up when the build stopped, in breadth-first order,
+     * which is empty if the graph is {@linkplain #complete() complete}. The build can be continued
+     * from these nodes with {@link MoreGraphs#resumeBuildGraph}.
+     */
+    public ImmutableSet<N> frontier() {
+      return frontier;
+    }
+
+    /**
+     * Returns {@code true} if every node reachable from the starting nodes was looked up, or
+     * {@code false} if the build was stopped by one of its options' limits.
+     */
+    public boolean complete() {
+      return complete;
+    }
+
+    /** Returns the number of times that the successors function was called. */
+    public long successorsCalls() {
+      return successorsCalls;
+    }
+
+    /**
+     * Returns the number of calls to the successors function that were saved by {@linkplain
+     * GraphBuildOptions.Deduplication#PER_NODE deduplicating per node}, compared to {@linkplain
+     * GraphBuildOptions.Deduplication#PER_EDGE deduplicating per edge}, which is zero when
+     * deduplicating per edge.
+     */
+    public long successorsCallsSaved() {
+      return successorsCallsSaved;
+    }
+
+    @Override
+    public String toString() {
+      return "GraphBuild{nodes="
+          + graph.nodes().size()
+          + ", edges="
+          + graph.edges().size()
+          + ", frontier="
+          + frontier.size()
+          + ", complete="
+          + complete
+          + ", successorsCalls="
+          + successorsCalls
+          + ", successorsCallsSaved="
+          + successorsCallsSaved
+          + "}";
+    }
+  }
+
+  /**
+   * Returns the same graph as {@link #buildGraph(Iterable, SuccessorsFunction)}, but looks up the
+   * successors of up to {@code parallelism} nodes at once, on virtual threads if the JVM supports
+   * them (Java 21 or later), or on a pool of {@code parallelism} threads otherwise. The threads are
+   * shut down before this method returns.
+   *
+   * <p>This is for successors functions that are slow because they wait on something, like a
+   * remote service or a database, rather than because they use the CPU. The more lookups that are
+   * in flight at once, the sooner the graph is built, up to the limits of what the successors
+   * function waits on.
+   *
+   * <p>The successors function is called exactly once for each node in the resulting graph, and
+   * may be called concurrently from several threads, so it must be thread-safe. The order of the
+   * resulting graph's nodes is unspecified.
+   *
+   * @param startingNodes the set of nodes to start from
+   * @param successorsFunction the thread-safe function to apply to the starting nodes and their
+   *     descendants
+   * @param parallelism the most successors lookups to run at once
+   * @param <N> the type of the nodes
+   * @return an immutable directed graph of the starting nodes and all their descendants
+   * @throws IllegalArgumentException if {@code parallelism} is not positive
+   * @throws InterruptedException if the calling thread is interrupted while waiting for the graph
+   *     to be built, in which case no more lookups are started, and those in flight are
+   *     interrupted
+   */
+  public static <N> ImmutableGraph<N> buildGraphConcurrently(
+      Iterable<N> startingNodes, SuccessorsFunction<N> successorsFunction, int parallelism)
+      throws InterruptedException {
+    requireNonNull(startingNodes, "startingNodes");
+    requireNonNull(successorsFunction, "successorsFunction");
+    checkArgument(parallelism > 0, "parallelism must be positive but was %s", parallelism);
+
+    ExecutorService executor = newLookupExecutor(parallelism);
+    try {
+      return buildGraphConcurrently(startingNodes, successorsFunction, executor, parallelism);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the same graph as {@link #buildGraph(Iterable, SuccessorsFunction)}, but looks up the
+   * successors of up to {@code parallelism} nodes at once on the given executor, as per {@link
+   * #buildGraphConcurrently(Iterable, SuccessorsFunction, int)}. The executor is not shut down
+   * afterwards.
+   *
+   * <p>Each lookup is a separate task, and new tasks are only submitted as earlier ones complete,
+   * so the executor never holds more than {@code parallelism} of this method's tasks at once.
+   *
+   * @throws IllegalArgumentException if {@code parallelism} is not positive
+   * @throws InterruptedException if the calling thread is interrupted while waiting for the graph
+   *     to be built, in which case no more lookups are started
+   */
+  public static <N> ImmutableGraph<N> buildGraphConcurrently(
+      Iterable<N> startingNodes,
+      SuccessorsFunction<N> successorsFunction,
+      Executor executor,
+      int parallelism)
+      throws InterruptedException {
+    requireNonNull(startingNodes, "startingNodes");
+    requireNonNull(successorsFunction, "successorsFunction");
+    requireNonNull(executor, "executor");
+    checkArgument(parallelism > 0, "parallelism must be positive but was %s", parallelism);
+
+    CompletableFuture<ImmutableGraph<N>> result =
+        ConcurrentGraphBuilder.build(
+            startingNodes,
+            node ->
+                CompletableFuture.supplyAsync(() -> successorsFunction.successors(node), executor),
+            parallelism);
+    try {
+      return result.get();
+    } catch (InterruptedException e) {
+      result.cancel(false);
+      throw e;
+    } catch (ExecutionException e) {
+      Throwable cause = requireNonNull(e.getCause());
+      throwIfUnchecked(cause);
+      throw new UncheckedExecutionException(cause);
+    }
+  }
+
+  private static ExecutorService newLookupExecutor(int parallelism) {
+    // Virtual threads were only added in Java 21, but this library supports Java 17 too.
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newFixedThreadPool(
+          parallelism,
+          new ThreadFactoryBuilder().setNameFormat("buildGraph-%d").setDaemon(true).build());
+    }
+  }
+
+  /**
+   * Returns a future of the same graph as {@link #buildGraph(Iterable, SuccessorsFunction)}, for
+   * an asynchronous successors function that returns a {@link CompletionStage} of each node's
+   * successors, like a client of a remote service.
+   *
+   * <p>Up to {@code maxInFlight} lookups are in flight at once. Newly discovered nodes wait in a
+   * queue until an earlier lookup completes, whereupon the thread that completed it starts the
+   * next lookup. No thread waits for lookups to complete, so tens of thousands of lookups can be
+   * in flight at once if the successors function can handle them.
+   *
+   * <p>The asynchronous successors function is called exactly once for each node in the resulting
+   * graph, on the calling thread or on whichever thread completed an earlier lookup, so it should
+   * return promptly rather than waiting for the successors itself. It is never called concurrently
+   * with itself. The order of the resulting graph's nodes is unspecified.
+   *
+   * <p>The returned future completes exceptionally as soon as any lookup fails, or if the
+   * asynchronous successors function throws or returns {@code null}. Cancelling it stops any more
+   * lookups from being started, but does not cancel those in flight.
+   *
+   * @param startingNodes the set of nodes to start from
+   * @param asyncSuccessors the function to apply to the starting nodes and their descendants
+   * @param maxInFlight the most lookups to have in flight at once
+   * @param <N> the type of the nodes
+   * @return a future of an immutable directed graph of the starting nodes and all their
+   *     descendants
+   * @throws IllegalArgumentException if {@code maxInFlight} is not positive
+   */
+  public static <N> CompletableFuture<ImmutableGraph<N>> buildGraphAsync(
+      Iterable<N> startingNodes,
+      Function<? super N, ? extends CompletionStage<? extends Iterable<? extends N>>>
+          asyncSuccessors,
+      int maxInFlight) {
+    requireNonNull(startingNodes, "startingNodes");
+    requireNonNull(asyncSuccessors, "asyncSuccessors");
+    checkArgument(maxInFlight > 0, "maxInFlight must be positive but was %s", maxInFlight);
+
+    return ConcurrentGraphBuilder.build(startingNodes, asyncSuccessors, maxInFlight);
+  }
+
+  /**
+   * Returns a successors function that remembers the successors returned by the given successors
+   * function, as per the given cache spec, so that traversing the same nodes again does not look
+   * them up again. The returned function can be shared between threads and between calls to
+   * methods like {@link #buildGraph(Iterable, SuccessorsFunction)} and {@link
+   * #topologicalOrderingStartingFrom(Iterable, SuccessorsFunction)}, and reports how many lookups
+   * it saved through {@link CachingSuccessorsFunction#stats()}.
+   *
+   * <p>For example, to remember the successors of up to 100,000 nodes for up to ten minutes:
+   *
+   * <pre>{@code
+   * var cachingSuccessorsFunction =
+   *     MoreGraphs.caching(
+   *         successorsFunction,
+   *         new CacheSpec().withMaximumSize(100_000).withExpireAfterWrite(Duration.ofMinutes(10)));
+   * }</pre>
+   *
+   * @param successorsFunction the successors function to remember the successors of
+   * @param cacheSpec how many successors to remember, and for how long
+   * @param <N> the type of the nodes
+   * @return a successors function that remembers the successors of the given one
+   */
+  public static <N> CachingSuccessorsFunction<N> caching(
+      SuccessorsFunction<N> successorsFunction, CacheSpec cacheSpec) {
+    requireNonNull(successorsFunction, "successorsFunction");
+    requireNonNull(cacheSpec, "cacheSpec");
+
+    return new CachingSuccessorsFunction<>(successorsFunction, cacheSpec);
+  }
+
   /**
    * Returns an <i>unmodifiable, directed {@linkplain ValueGraph value graph} view</i> of the given
    * table.
@@ -806,77 +1581,1290 @@ public final class MoreGraphs {
   }
 
   private static final double DEFAULT_DAMPING_FACTOR = 0.85;
-  private static final int DEFAULT_ITERATIONS = 10_000;
+  private static final int DEFAULT_MAX_ITERATIONS = 10_000;
+  private static final double DEFAULT_TOLERANCE = 1.0e-10;
 
-  // TODO: Javadoc
-  // TODO: Accept maxIterations and tolerance.
+  /**
+   * Returns an algorithm that calculates the page ranks of all nodes of the given graph, as per
+   * the <a href='https://en.wikipedia.org/wiki/PageRank'>PageRank algorithm</a>. Each node's page
+   * rank is passed on equally to its successors, and the page ranks of nodes without successors
+   * are spread over every node. For undirected graphs, each edge is followed in both directions.
+   *
+   * <p>The algorithm can be configured before it is {@linkplain PageRanksAlgorithm#run() run}.
+   *
+   * @param graph the graph to calculate the page ranks of; must not be null
+   * @param <N> the node type
+   * @return an algorithm that calculates the page ranks of the graph's nodes
+   */
   public static <N> PageRanksAlgorithm<N> pageRanks(Graph<N> graph) {
-    // TODO: requireNonNull(graph)
+    requireNonNull(graph, "graph");
     return new PageRanksAlgorithm<>(graph);
   }
 
-  public static final class PageRanksAlgorithm<N> {
-    private final Graph<N> graph;
-    private double dampingFactor = DEFAULT_DAMPING_FACTOR;
+  /**
+   * Returns an algorithm that calculates the weighted page ranks of all nodes of the given value
+   * graph, where each edge's value is its weight. Each node's page rank is passed on to its
+   * successors in proportion to the weights of its outgoing edges, rather than equally. Nodes whose
+   * outgoing edges all have a weight of zero are treated like nodes without successors.
+   *
+   * <p>The edge values are read once when the algorithm is run, so they are not looked up again on
+   * every iteration. An {@code IllegalArgumentException} is thrown when running the algorithm if
+   * any edge value is negative, infinite or NaN.
+   *
+   * @param graph the value graph to calculate the page ranks of; must not be null
+   * @param <N> the node type
+   * @return an algorithm that calculates the weighted page ranks of the graph's nodes
+   */
+  public static <N> PageRanksAlgorithm<N> pageRanks(ValueGraph<N, ? extends Number> graph) {
+    requireNonNull(graph, "graph");
+    return new PageRanksAlgorithm<>(graph);
+  }
 
-    public PageRanksAlgorithm(Graph<N> graph) {
-      this.graph = graph;
+  /**
+   * A configurable calculation of the page ranks of a graph's nodes, as returned by {@link
+   * #pageRanks(Graph)} and {@link #pageRanks(ValueGraph)}. Each {@code with} method sets an option
+   * and returns this algorithm, so that options can be chained before the algorithm is run.
+   *
+   * @param <N> the node type
+   */
+  public static final class PageRanksAlgorithm<N> {
+    /**
+     * The norm used to measure the residual between the page ranks of two consecutive iterations.
+     */
+    public enum ResidualNorm {
+      /** The sum of the absolute differences of every node's page rank. */
+      L1,
+      /** The largest absolute difference of any node's page rank. */
+      L_INFINITY
     }
 
+    /** The floating-point precision that page ranks are stored in while they are solved for. */
+    public enum Precision {
+      /** Page ranks are stored as {@code double}s. This is the default. */
+      DOUBLE,
+      /**
+       * Page ranks are stored as {@code float}s, which halves the memory that they take up, at the
+       * cost of their precision. Page ranks are still calculated, summed and returned as {@code
+       * double}s, but they are only accurate to about {@code 1e-7} of their values.
+       */
+      FLOAT
+    }
+
+    /**
+     * The order that nodes are numbered in when the graph is indexed, which decides where each
+     * node's page rank is stored, and so how close together in memory the page ranks of
+     * neighbouring nodes are.
+     */
+    public enum NodeOrdering {
+      /** Nodes are numbered in the order of the graph's {@link Graph#nodes()}, by default. */
+      GRAPH,
+      /**
+       * Nodes are numbered in breadth-first order, following edges in both directions, so that
+       * nodes that are close together in the graph are usually close together in memory.
+       */
+      BREADTH_FIRST,
+      /**
+       * Nodes are numbered in descending order of out-degree, so that the nodes whose page ranks
+       * are read the most often are packed together in memory.
+       */
+      DEGREE
+    }
+
+    /**
+     * A callback that is told about the progress of a run after each iteration, such as to log it
+     * or to export it as a metric.
+     *
+     * @see #withListener(PageRankListener)
+     */
+    @FunctionalInterface
+    public interface PageRankListener {
+      /**
+       * Called on the thread that started the run after each iteration.
+       *
+       * @param iteration the number of iterations run so far, starting from 1
+       * @param residual the residual of this iteration, as measured by the {@linkplain
+       *     #withResidualNorm(ResidualNorm) residual norm}
+       * @param elapsedNanos the nanoseconds that have passed since the run started
+       */
+      void iterated(int iteration, double residual, long elapsedNanos);
+    }
+
+    /** The iterative method used to solve for the page ranks. */
+    public static final class Solver {
+      /**
+       * Power iteration, which calculates every node's new page rank from the previous
+       * iteration's page ranks. Each iteration can be split across threads, as per {@link
+       * #withParallelism(int)}. This is the default.
+       */
+      public static final Solver JACOBI = new Solver(false, 1.0);
+
+      /**
+       * Gauss-Seidel iteration, which updates each node's page rank in place, straight after those
+       * of its predecessors, so that page rank flows further per iteration. This usually needs
+       * about half the iterations and half the memory of {@link #JACOBI}, but each iteration runs
+       * on a single thread.
+       *
+       * <p>Nodes are updated in topological order, or as close to it as the graph's cycles allow,
+       * so for directed acyclic graphs, the page ranks are found in a single iteration.
+       */
+      public static final Solver GAUSS_SEIDEL = new Solver(true, 1.0);
+
+      /**
+       * Returns a solver that uses successive over-relaxation (SOR), which is {@link
+       * #GAUSS_SEIDEL} with each node's change in page rank multiplied by {@code omega}. An
+       * {@code omega} of 1 is the same as Gauss-Seidel; a larger {@code omega} may converge in
+       * fewer iterations, but for some graphs it converges more slowly, or not at all.
+       *
+       * @throws IllegalArgumentException if {@code omega} is not strictly between 0 and 2
+       */
+      public static Solver sor(double omega) {
+        checkArgument(
+            omega > 0.0 && omega < 2.0, "omega must be between 0 and 2 but was %s", omega);
+        return new Solver(true, omega);
+      }
+
+      private final boolean inPlace;
+      private final double relaxationFactor;
+
+      private Solver(boolean inPlace, double relaxationFactor) {
+        this.inPlace = inPlace;
+        this.relaxationFactor = relaxationFactor;
+      }
+
+      @Override
+      public boolean equals(@Nullable Object obj) {
+        return obj instanceof Solver other
+            && inPlace == other.inPlace
+            && relaxationFactor == other.relaxationFactor;
+      }
+
+      @Override
+      public int hashCode() {
+        return Boolean.hashCode(inPlace) * 31 + Double.hashCode(relaxationFactor);
+      }
+
+      @Override
+      public String toString() {
+        if (!inPlace) {
+          return "JACOBI";
+        }
+        return relaxationFactor == 1.0 ? "GAUSS_SEIDEL" : "SOR(" + relaxationFactor + ")";
+      }
+    }
+
+    private final Graph<N> graph;
+    private final @Nullable ValueGraph<N, ? extends Number> valueGraph;
+    private double dampingFactor = DEFAULT_DAMPING_FACTOR;
+    private int maxIterations = DEFAULT_MAX_ITERATIONS;
+    private double tolerance = DEFAULT_TOLERANCE;
+    private ResidualNorm residualNorm = ResidualNorm.L1;
+    private Solver solver = Solver.JACOBI;
+    private Precision precision = Precision.DOUBLE;
+    private NodeOrdering nodeOrdering = NodeOrdering.GRAPH;
+    private boolean cacheBlocking;
+    private @Nullable Duration deadline;
+    private @Nullable PageRankListener listener;
+    private int parallelism;
+    private @Nullable ForkJoinPool executor;
+    private @Nullable ImmutableMap<N, Double> personalization;
+    private @Nullable ImmutableMap<N, Double> initialRanks;
+
+    private PageRanksAlgorithm(Graph<N> graph) {
+      this.graph = graph;
+      this.valueGraph = null;
+    }
+
+    private PageRanksAlgorithm(ValueGraph<N, ? extends Number> valueGraph) {
+      this.graph = valueGraph.asGraph();
+      this.valueGraph = valueGraph;
+    }
+
+    /**
+     * Sets the probability that a random surfer follows an edge from the current node, rather than
+     * teleporting to another node. Defaults to {@code 0.85}.
+     *
+     * @throws IllegalArgumentException if {@code dampingFactor} is not between 0 and 1 inclusive,
+     *     or is NaN
+     */
     public PageRanksAlgorithm<N> withDampingFactor(double dampingFactor) {
+      checkArgument(
+          dampingFactor >= 0.0 && dampingFactor <= 1.0,
+          "dampingFactor must be between 0 and 1 but was %s",
+          dampingFactor);
       this.dampingFactor = dampingFactor;
       return this;
     }
 
+    /**
+     * Sets the most iterations that will be run before giving up on the page ranks converging.
+     * Defaults to 10,000.
+     *
+     * @throws IllegalArgumentException if {@code maxIterations} is not positive
+     */
+    public PageRanksAlgorithm<N> withMaxIterations(int maxIterations) {
+      checkArgument(maxIterations > 0, "maxIterations must be positive but was %s", maxIterations);
+      this.maxIterations = maxIterations;
+      return this;
+    }
+
+    /**
+     * Sets the residual at or below which the page ranks are considered to have converged, at which
+     * point no more iterations will be run. Defaults to {@code 1.0e-10}.
+     *
+     * @throws IllegalArgumentException if {@code tolerance} is negative or NaN
+     * @see #withResidualNorm(ResidualNorm)
+     */
+    public PageRanksAlgorithm<N> withTolerance(double tolerance) {
+      checkArgument(tolerance >= 0.0, "tolerance must be non-negative but was %s", tolerance);
+      this.tolerance = tolerance;
+      return this;
+    }
+
+    /**
+     * Sets the norm used to measure the residual between the page ranks of two consecutive
+     * iterations, which is compared against the {@linkplain #withTolerance(double) tolerance}.
+     * Defaults to {@link ResidualNorm#L1 L1}.
+     */
+    public PageRanksAlgorithm<N> withResidualNorm(ResidualNorm residualNorm) {
+      this.residualNorm = requireNonNull(residualNorm, "residualNorm");
+      return this;
+    }
+
+    /**
+     * Sets the iterative method used to solve for the page ranks. Defaults to {@link
+     * Solver#JACOBI}. This does not apply to {@link #runBatch(List)}, which always uses {@link
+     * Solver#JACOBI}.
+     */
+    public PageRanksAlgorithm<N> withSolver(Solver solver) {
+      this.solver = requireNonNull(solver, "solver");
+      return this;
+    }
+
+    /**
+     * Sets the floating-point precision that page ranks are stored in while they are solved for.
+     * Defaults to {@link Precision#DOUBLE}.
+     *
+     * <p>{@link Precision#FLOAT} is for graphs so large that the page ranks would not otherwise fit
+     * in memory, or in the CPU caches. As floats are only precise to about 7 significant digits,
+     * iterations stop as soon as the page ranks stop changing by more than their rounding errors,
+     * even if the residual has not reached the {@linkplain #withTolerance(double) tolerance}. If
+     * so, the result reports the residual that was reached, and is not {@linkplain
+     * PageRanks#converged() converged}.
+     *
+     * <p>This only applies to {@link Solver#JACOBI}. The other solvers, and {@link
+     * #runBatch(List)}, always use {@link Precision#DOUBLE}.
+     */
+    public PageRanksAlgorithm<N> withPrecision(Precision precision) {
+      this.precision = requireNonNull(precision, "precision");
+      return this;
+    }
+
+    /**
+     * Sets the order that nodes are numbered in when the graph is indexed. Defaults to {@link
+     * NodeOrdering#GRAPH}.
+     *
+     * <p>On graphs too large for their page ranks to fit in the CPU caches, most of each iteration
+     * is spent waiting on reads of the page ranks of each node's predecessors. Renumbering the
+     * nodes so that neighbouring nodes are numbered close together lets more of these reads hit
+     * the cache, at the cost of renumbering the graph once per run. This does not change the page
+     * ranks, but it does change the order of nodes with equal page ranks in {@link
+     * PageRanks#ranks()}.
+     */
+    public PageRanksAlgorithm<N> withNodeOrdering(NodeOrdering nodeOrdering) {
+      this.nodeOrdering = requireNonNull(nodeOrdering, "nodeOrdering");
+      return this;
+    }
+
+    /**
+     * Sets whether iterations are cache-blocked. Defaults to {@code false}.
+     *
+     * <p>If {@code true}, then the nodes are split into blocks of consecutive nodes that are small
+     * enough for their page ranks to fit in a typical L2 cache, and the edges are grouped by the
+     * block of their source node. Each iteration then gathers the page ranks of one block's worth
+     * of predecessors at a time, so the reads stay within the cache, rather than reading from
+     * anywhere in the graph for every edge.
+     *
+     * <p>This is only worth it for graphs with millions of nodes and many edges per node, and
+     * needs memory for a second copy of the edges. This only applies to {@link Solver#JACOBI} with
+     * {@link Precision#DOUBLE}, and not to {@link #runBatch(List)}.
+     *
+     * @see #withNodeOrdering(NodeOrdering)
+     */
+    public PageRanksAlgorithm<N> withCacheBlocking(boolean cacheBlocking) {
+      this.cacheBlocking = cacheBlocking;
+      return this;
+    }
+
+    /**
+     * Sets how long a run may take before it is stopped early, counting from when it starts. A run
+     * that is stopped early returns the page ranks of its last iteration, rather than throwing,
+     * and its result {@linkplain PageRanks#stoppedEarly() says so}. By default, runs have no
+     * deadline.
+     *
+     * <p>The deadline is checked between iterations, so a run can overshoot it by up to one
+     * iteration. If the deadline passes before the first iteration, such as while the graph is
+     * being indexed, then the result has the initial page ranks.
+     *
+     * <p>Runs are also stopped early if the thread that started them is {@linkplain
+     * Thread#interrupt() interrupted}. The thread's interrupt status is left set, so that the
+     * caller can still see it.
+     *
+     * <p>This does not apply to {@link #approximate(int, long)}.
+     *
+     * @throws IllegalArgumentException if {@code deadline} is negative
+     */
+    public PageRanksAlgorithm<N> withDeadline(Duration deadline) {
+      requireNonNull(deadline, "deadline");
+      checkArgument(!deadline.isNegative(), "deadline must be non-negative but was %s", deadline);
+      this.deadline = deadline;
+      return this;
+    }
+
+    /**
+     * Sets a listener that is told about the progress of each run after every iteration. By
+     * default, there is no listener.
+     *
+     * <p>This does not apply to {@link #approximate(int, long)}.
+     */
+    public PageRanksAlgorithm<N> withListener(PageRankListener listener) {
+      this.listener = requireNonNull(listener, "listener");
+      return this;
+    }
+
+    /**
+     * Sets the personalization vector that decides where page rank mass <i>teleports</i> to, which
+     * happens when the random surfer stops following edges or reaches a node without successors.
+     * By default, page rank mass teleports uniformly to every node.
+     *
+     * <p>Each node teleported to gets a share of the mass in proportion to its weight, so the
+     * weights need not sum to one. Nodes that are not in {@code personalization} are never
+     * teleported to.
+     *
+     * @throws IllegalArgumentException if any weight is negative, infinite or NaN, or if the
+     *     weights do not have a positive sum. An {@code IllegalArgumentException} is also thrown
+     *     when running the algorithm if any node in {@code personalization} is not in the graph.
+     */
+    public PageRanksAlgorithm<N> withPersonalization(Map<N, Double> personalization) {
+      checkPersonalization(personalization);
+      this.personalization = ImmutableMap.copyOf(personalization);
+      return this;
+    }
+
+    /**
+     * Sets the personalization vector to teleport page rank mass uniformly to the given seed nodes
+     * only. Equivalent to calling {@link #withPersonalization(Map)} with a weight of {@code 1.0}
+     * for each seed node.
+     *
+     * @throws IllegalArgumentException if {@code seeds} is empty. An {@code
+     *     IllegalArgumentException} is also thrown when running the algorithm if any seed node is
+     *     not in the graph.
+     */
+    public PageRanksAlgorithm<N> withPersonalization(Set<N> seeds) {
+      requireNonNull(seeds, "seeds");
+      checkArgument(!seeds.isEmpty(), "seeds must not be empty");
+      return withPersonalization(Maps.toMap(seeds, seed -> 1.0));
+    }
+
+    /**
+     * Sets the page ranks that the first iteration starts from, such as the result of an earlier
+     * run on a slightly different version of the graph. By default, every node starts with a page
+     * rank of {@code 1 / n}, where {@code n} is the number of nodes.
+     *
+     * <p>When the graph has changed only a little since {@code initialRanks} were calculated,
+     * starting from them rather than from scratch means that far fewer iterations are needed to
+     * get within the {@linkplain #withTolerance(double) tolerance}.
+     *
+     * <p>Nodes in {@code initialRanks} that are not in the graph are ignored, and nodes in the
+     * graph that are not in {@code initialRanks} start with the mean of the other nodes' initial
+     * page ranks. The initial page ranks are then scaled to sum to one. If they would all be zero,
+     * then every node starts with a page rank of {@code 1 / n} instead.
+     *
+     * <p>This does not apply to {@link #runBatch(List)}.
+     *
+     * @throws IllegalArgumentException if any page rank is negative, infinite or NaN
+     */
+    public PageRanksAlgorithm<N> withInitialRanks(Map<N, Double> initialRanks) {
+      requireNonNull(initialRanks, "initialRanks");
+      for (Map.Entry<N, Double> entry : initialRanks.entrySet()) {
+        double pageRank = requireNonNull(entry.getValue(), "initialRanks has a null page rank");
+        checkArgument(
+            pageRank >= 0.0 && pageRank < Double.POSITIVE_INFINITY,
+            "initial page rank for node '%s' must be non-negative and finite but was %s",
+            entry.getKey(),
+            pageRank);
+      }
+      this.initialRanks = ImmutableMap.copyOf(initialRanks);
+      return this;
+    }
+
+    /**
+     * Sets the number of threads that each iteration is split across. Each iteration splits the
+     * nodes into chunks, runs the chunks concurrently, and waits for all of them to finish before
+     * starting the next iteration.
+     *
+     * <p>If no {@linkplain #withExecutor(ForkJoinPool) executor} is given, then a {@link
+     * ForkJoinPool} with this parallelism is created for each run and shut down afterwards.
+     * Otherwise, defaults to the executor's {@linkplain ForkJoinPool#getParallelism() parallelism},
+     * or to 1 (that is, to running on the calling thread) if there is no executor either.
+     *
+     * <p>Small graphs are always run on the calling thread, as splitting them up costs more than it
+     * saves. So are the {@linkplain #withSolver(Solver) solvers} other than {@link Solver#JACOBI},
+     * as they update the page ranks in place, one node after another.
+     *
+     * @throws IllegalArgumentException if {@code parallelism} is not positive
+     */
+    public PageRanksAlgorithm<N> withParallelism(int parallelism) {
+      checkArgument(parallelism > 0, "parallelism must be positive but was %s", parallelism);
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    /**
+     * Sets the {@link ForkJoinPool} that the chunks of each iteration are run on. The pool is not
+     * shut down afterwards.
+     *
+     * @see #withParallelism(int)
+     */
+    public PageRanksAlgorithm<N> withExecutor(ForkJoinPool executor) {
+      this.executor = requireNonNull(executor, "executor");
+      return this;
+    }
+
+    /**
+     * Returns the page ranks of all nodes, sorted from highest to lowest. Equivalent to {@code
+     * run().ranks()}.
+     */
     public ImmutableMap<N, Double> execute() {
-      Map<N, Double> currentPageRanks = Maps.newHashMapWithExpectedSize(graph.nodes().size());
-      for (N node : graph.nodes()) {
-        currentPageRanks.put(node, 1.0 / graph.nodes().size());
+      return run().ranks();
+    }
+
+    /**
+     * Returns the page ranks of the {@code k} nodes with the highest page ranks, sorted from
+     * highest to lowest. Equivalent to {@code run().topRanks(k)}.
+     *
+     * @throws IllegalArgumentException if {@code k} is negative
+     */
+    public ImmutableMap<N, Double> executeTopK(int k) {
+      checkArgument(k >= 0, "k must be non-negative but was %s", k);
+      return run().topRanks(k);
+    }
+
+    /**
+     * Returns the page ranks of all nodes, along with the number of iterations that were run and
+     * the final residual, so that callers can tell whether the page ranks converged.
+     */
+    public PageRanks<N> run() {
+      long startNanos = System.nanoTime();
+      return withPool(
+          (pool, parallelism) -> {
+            // Index the nodes and edges up front so that each iteration only works with primitive
+            // arrays, rather than hashing nodes and boxing page ranks.
+            IndexedGraph<N> indexedGraph = indexedGraph();
+            var personalization = this.personalization;
+            double @Nullable [] teleport =
+                personalization == null ? null : teleport(indexedGraph, personalization);
+            var initialRanks = this.initialRanks;
+            double @Nullable [] initialPageRanks =
+                initialRanks == null ? null : initialPageRanks(indexedGraph, initialRanks);
+            PageRanksIteration kernel;
+            if (solver.inPlace) {
+              kernel =
+                  new PageRanksGaussSeidelKernel(
+                      indexedGraph,
+                      dampingFactor,
+                      solver.relaxationFactor,
+                      residualNorm,
+                      teleport,
+                      initialPageRanks);
+            } else if (cacheBlocking && precision == Precision.DOUBLE) {
+              kernel =
+                  new PageRanksCacheBlockedKernel(
+                      indexedGraph,
+                      dampingFactor,
+                      residualNorm,
+                      teleport,
+                      initialPageRanks,
+                      pool,
+                      parallelism);
+            } else if (precision == Precision.FLOAT) {
+              kernel =
+                  new PageRanksFloatKernel(
+                      indexedGraph,
+                      dampingFactor,
+                      residualNorm,
+                      teleport,
+                      initialPageRanks,
+                      pool,
+                      parallelism);
+            } else {
+              kernel =
+                  new PageRanksKernel(
+                      indexedGraph,
+                      dampingFactor,
+                      residualNorm,
+                      teleport,
+                      initialPageRanks,
+                      pool,
+                      parallelism);
+            }
+
+            Iterations iterations = iterate(kernel::iterate, kernel::atPrecisionLimit, startNanos);
+            return new PageRanks<>(
+                indexedGraph,
+                kernel.pageRanks(),
+                iterations.count,
+                iterations.residual,
+                iterations.residual <= tolerance,
+                iterations.stoppedEarly);
+          });
+    }
+
+    /**
+     * Returns estimates of the page ranks of all nodes, found by simulating random walks rather
+     * than by solving for the page ranks exactly. With few walks per node, this does much less
+     * work than {@link #run()}, at the cost of accuracy. The highest page ranks are estimated the
+     * most accurately, so this is well suited to finding the {@linkplain
+     * ApproximatePageRanks#topRanks(int) top-ranked nodes}.
+     *
+     * <p>{@code walksPerNode * n} walks are run in total, where {@code n} is the number of nodes.
+     * Each walk starts at a node picked as per the {@linkplain #withPersonalization(Map)
+     * personalization vector}, or, by default, {@code walksPerNode} walks start at each node. At
+     * each step, a walk stops with probability {@code 1 - dampingFactor}, and otherwise follows a
+     * random outgoing edge, picked in proportion to the edges' weights if the graph is a {@link
+     * ValueGraph}. Walks at nodes without successors teleport instead. Each node's page rank is
+     * then estimated as its share of all the visits made by all the walks, and the {@linkplain
+     * ApproximatePageRanks#standardError(Object) standard error} of each estimate shrinks in
+     * proportion to {@code 1 / sqrt(walksPerNode)}.
+     *
+     * <p>The walks are shared out between threads as per {@link #withParallelism(int)} and {@link
+     * #withExecutor(ForkJoinPool)}. The estimates depend only on {@code seed}, not on the number
+     * of threads. The tolerance, maximum iterations, solver and initial ranks are not used.
+     *
+     * @throws IllegalArgumentException if {@code walksPerNode} is not positive
+     * @see <a href='https://doi.org/10.1137/050643799'>Avrachenkov et al., "Monte Carlo Methods in
+     *     PageRank Computation: When One Iteration is Sufficient"</a>
+     */
+    public ApproximatePageRanks<N> approximate(int walksPerNode, long seed) {
+      checkArgument(walksPerNode > 0, "walksPerNode must be positive but was %s", walksPerNode);
+      return withPool(
+          (pool, parallelism) -> {
+            IndexedGraph<N> indexedGraph = indexedGraph();
+            var personalization = this.personalization;
+            double @Nullable [] teleport =
+                personalization == null ? null : teleport(indexedGraph, personalization);
+            var monteCarlo =
+                new PageRanksMonteCarlo(
+                    indexedGraph, dampingFactor, teleport, walksPerNode, seed);
+            monteCarlo.run(pool, parallelism);
+            return new ApproximatePageRanks<>(
+                indexedGraph,
+                monteCarlo.pageRanks(),
+                monteCarlo.standardErrors(),
+                monteCarlo.walks());
+          });
+    }
+
+    /**
+     * Returns the personalized page ranks of all nodes for each of the given personalizations, as
+     * if {@link #withPersonalization(Map)} and {@link #run()} were called for each one in turn.
+     * However, all the personalizations are iterated together, so that each iteration makes one
+     * pass over the graph's edges rather than one pass per personalization.
+     *
+     * <p>Iterations continue until every personalization's residual is within the {@linkplain
+     * #withTolerance(double) tolerance}, or until the {@linkplain #withMaxIterations(int) maximum
+     * iterations} is reached. Any personalization set by {@link #withPersonalization(Map)} is
+     * ignored.
+     *
+     * <p>This needs memory for a few {@code graph.nodes().size() * personalizations.size()} blocks
+     * of page ranks.
+     *
+     * @throws IllegalArgumentException if any personalization is invalid, as per {@link
+     *     #withPersonalization(Map)}
+     */
+    public ImmutableList<PageRanks<N>> runBatch(
+        List<? extends Map<N, Double>> personalizations) {
+      requireNonNull(personalizations, "personalizations");
+      for (Map<N, Double> personalization : personalizations) {
+        checkPersonalization(personalization);
+      }
+      if (personalizations.isEmpty()) {
+        return ImmutableList.of();
       }
-      Map<N, Double> nextPageRanks = Maps.newHashMapWithExpectedSize(graph.nodes().size());
 
-      for (int i = 0; i < DEFAULT_ITERATIONS; i++) {
-        double left = left(graph, dampingFactor, currentPageRanks);
+      long startNanos = System.nanoTime();
+      return withPool(
+          (pool, parallelism) -> {
+            IndexedGraph<N> indexedGraph = indexedGraph();
+            checkArgument(
+                (long) indexedGraph.nodeCount() * personalizations.size() <= Integer.MAX_VALUE,
+                "too many personalizations (%s) for a graph with %s nodes",
+                personalizations.size(),
+                indexedGraph.nodeCount());
+            double[][] teleports = new double[personalizations.size()][];
+            for (int i = 0; i < teleports.length; i++) {
+              teleports[i] = teleport(indexedGraph, personalizations.get(i));
+            }
+            var kernel =
+                new PageRanksBlockKernel(
+                    indexedGraph, teleports, dampingFactor, residualNorm, pool, parallelism);
+
+            Iterations iterations = iterate(kernel::iterate, () -> false, startNanos);
+            ImmutableList.Builder<PageRanks<N>> result =
+                ImmutableList.builderWithExpectedSize(teleports.length);
+            for (int i = 0; i < teleports.length; i++) {
+              double columnResidual = kernel.residual(i);
+              result.add(
+                  new PageRanks<>(
+                      indexedGraph,
+                      kernel.pageRanks(i),
+                      iterations.count,
+                      columnResidual,
+                      columnResidual <= tolerance,
+                      iterations.stoppedEarly));
+            }
+            return result.build();
+          });
+    }
+
+    /**
+     * Runs the algorithm, and returns a session that keeps the page ranks up to date as the graph
+     * changes, without recalculating them from scratch. The session takes a copy of the graph's
+     * structure, so later changes to the graph itself are not seen by the session; instead,
+     * changes must be made through the session.
+     *
+     * @throws IllegalStateException if this algorithm was created for a {@link ValueGraph}, as
+     *     sessions do not support weighted graphs
+     * @see PageRanksSession
+     */
+    public PageRanksSession<N> startSession() {
+      checkState(valueGraph == null, "sessions do not support weighted graphs");
+      PageRanks<N> pageRanks = run();
+      var personalization = this.personalization;
+      return new PageRanksSession<>(
+          new PageRanksPushKernel<>(
+              graph,
+              pageRanks.indexedGraph,
+              pageRanks.pageRanks,
+              dampingFactor,
+              tolerance,
+              personalization == null ? ImmutableMap.of() : personalization));
+    }
 
-        for (N node : graph.nodes()) {
-          double right = right(graph, dampingFactor, node, currentPageRanks);
+    private IndexedGraph<N> indexedGraph() {
+      var valueGraph = this.valueGraph;
+      IndexedGraph<N> result =
+          valueGraph == null ? IndexedGraph.of(graph) : IndexedGraph.of(valueGraph);
+      return switch (nodeOrdering) {
+        case GRAPH -> result;
+        case BREADTH_FIRST -> result.renumbered(result.breadthFirstOrdering());
+        case DEGREE -> result.renumbered(result.degreeOrdering());
+      };
+    }
 
-          double pageRank = left + right;
-          nextPageRanks.put(node, pageRank);
+    /**
+     * Runs iterations until the residual is within the tolerance or the precision that the page
+     * ranks are stored in, the maximum iterations are reached, or the run is stopped early by its
+     * deadline or by an interrupt.
+     */
+    private Iterations iterate(
+        DoubleSupplier iteration, BooleanSupplier atPrecisionLimit, long startNanos) {
+      var deadline = this.deadline;
+      var listener = this.listener;
+      long deadlineNanos = deadline == null ? Long.MAX_VALUE : saturatedNanos(deadline);
+      int count = 0;
+      double residual = Double.POSITIVE_INFINITY;
+      while (count < maxIterations && residual > tolerance && !atPrecisionLimit.getAsBoolean()) {
+        if (Thread.currentThread().isInterrupted()
+            || System.nanoTime() - startNanos >= deadlineNanos) {
+          return new Iterations(count, residual, true);
         }
+        residual = iteration.getAsDouble();
+        count++;
+        if (listener != null) {
+          listener.iterated(count, residual, System.nanoTime() - startNanos);
+        }
+      }
+      return new Iterations(count, residual, false);
+    }
+
+    /** How many iterations were run, the last iteration's residual, and why they stopped. */
+    private static final class Iterations {
+      private final int count;
+      private final double residual;
+      private final boolean stoppedEarly;
+
+      private Iterations(int count, double residual, boolean stoppedEarly) {
+        this.count = count;
+        this.residual = residual;
+        this.stoppedEarly = stoppedEarly;
+      }
+    }
+
+    @FunctionalInterface
+    private interface PoolTask<R> {
+      R run(@Nullable ForkJoinPool pool, int parallelism);
+    }
 
-        var tmp = currentPageRanks;
-        currentPageRanks = nextPageRanks;
-        nextPageRanks = tmp;
+    private <R> R withPool(PoolTask<R> task) {
+      var executor = this.executor;
+      if (executor != null) {
+        return task.run(executor, parallelism == 0 ? executor.getParallelism() : parallelism);
       }
+      if (parallelism > 1) {
+        var pool = new ForkJoinPool(parallelism);
+        try {
+          return task.run(pool, parallelism);
+        } finally {
+          pool.shutdown();
+        }
+      }
+      return task.run(null, 1);
+    }
 
-      return currentPageRanks.entrySet().stream()
-          .sorted(comparingByValue(reverseOrder()))
-          .collect(toImmutableMap(Map.Entry::getKey, Map.Entry::getValue));
+    private static <N> void checkPersonalization(Map<N, Double> personalization) {
+      requireNonNull(personalization, "personalization");
+      double sum = 0.0;
+      for (Map.Entry<N, Double> entry : personalization.entrySet()) {
+        double weight = requireNonNull(entry.getValue(), "personalization has a null weight");
+        checkArgument(
+            weight >= 0.0 && weight < Double.POSITIVE_INFINITY,
+            "personalization weight for node '%s' must be non-negative and finite but was %s",
+            entry.getKey(),
+            weight);
+        sum += weight;
+      }
+      checkArgument(sum > 0.0, "personalization weights must have a positive sum");
     }
 
-    private static <N> double left(
-        Graph<N> graph, double dampingFactor, Map<N, Double> currentPageRanks) {
+    /** Returns the given personalization as a vector indexed by node, normalized to sum to one. */
+    private static <N> double[] teleport(
+        IndexedGraph<N> indexedGraph, Map<N, Double> personalization) {
+      double[] result = new double[indexedGraph.nodeCount()];
       double sum = 0.0;
-      for (N node : graph.nodes()) {
-        double currentPageRank = requireNonNull(currentPageRanks.get(node));
-        if (graph.outDegree(node) == 0) {
-          sum += currentPageRank;
-        } else {
-          sum += (1 - dampingFactor) * currentPageRank;
+      for (Map.Entry<N, Double> entry : personalization.entrySet()) {
+        int node = indexedGraph.indexOf(entry.getKey());
+        checkArgument(node >= 0, NODE_IS_NOT_IN_THIS_GRAPH, entry.getKey());
+        result[node] = entry.getValue();
+        sum += entry.getValue();
+      }
+      for (int node = 0; node < result.length; node++) {
+        result[node] /= sum;
+      }
+      return result;
+    }
+
+    /**
+     * Returns the given initial page ranks as a vector indexed by node, with the mean page rank
+     * filled in for missing nodes, normalized to sum to one. Returns {@code null} if there are no
+     * positive page ranks to start from.
+     */
+    private static <N> double @Nullable [] initialPageRanks(
+        IndexedGraph<N> indexedGraph, Map<N, Double> initialRanks) {
+      int nodeCount = indexedGraph.nodeCount();
+      double[] result = new double[nodeCount];
+      boolean[] known = new boolean[nodeCount];
+      double knownSum = 0.0;
+      int knownCount = 0;
+      for (Map.Entry<N, Double> entry : initialRanks.entrySet()) {
+        int node = indexedGraph.indexOf(entry.getKey());
+        if (node >= 0) {
+          result[node] = entry.getValue();
+          known[node] = true;
+          knownSum += entry.getValue();
+          knownCount++;
         }
       }
-      return sum / graph.nodes().size();
+      if (knownSum == 0.0) {
+        return null;
+      }
+
+      double mean = knownSum / knownCount;
+      double sum = knownSum + mean * (nodeCount - knownCount);
+      for (int node = 0; node < nodeCount; node++) {
+        result[node] = (known[node] ? result[node] : mean) / sum;
+      }
+      return result;
     }
+  }
 
-    private static <N> double right(
-        Graph<N> graph, double dampingFactor, N node, Map<N, Double> currentPageRanks) {
-      double sum = 0.0;
-      for (N predecessor : graph.predecessors(node)) {
-        double currentPageRank = requireNonNull(currentPageRanks.get(predecessor));
-        sum += currentPageRank / graph.outDegree(predecessor);
+  /**
+   * The result of running a {@link PageRanksAlgorithm}: the page ranks of all nodes, plus details
+   * of how the algorithm's run went.
+   *
+   * <p>The page ranks are stored as a primitive array indexed by node, so looking up individual
+   * nodes with {@link #rankOf(Object)}, or the highest page ranks with {@link #topRanks(int)}, is
+   * cheaper than building the full sorted map returned by {@link #ranks()}.
+   */
+  public static final class PageRanks<N> {
+    private final IndexedGraph<N> indexedGraph;
+    private final double[] pageRanks;
+    private final int iterations;
+    private final double residual;
+    private final boolean converged;
+    private final boolean stoppedEarly;
+    private @Nullable ImmutableMap<N, Double> ranks;
+
+    private PageRanks(
+        IndexedGraph<N> indexedGraph,
+        double[] pageRanks,
+        int iterations,
+        double residual,
+        boolean converged,
+        boolean stoppedEarly) {
+      this.indexedGraph = indexedGraph;
+      this.pageRanks = pageRanks;
+      this.iterations = iterations;
+      this.residual = residual;
+      this.converged = converged;
+      this.stoppedEarly = stoppedEarly;
+    }
+
+    /** Returns the page ranks of all nodes, sorted from highest to lowest. */
+    public ImmutableMap<N, Double> ranks() {
+      var result = ranks;
+      if (result == null) {
+        result = SortedRanks.all(indexedGraph, pageRanks);
+        ranks = result;
+      }
+      return result;
+    }
+
+    /**
+     * Returns the page rank of the given node.
+     *
+     * @throws IllegalArgumentException if {@code node} is not in the graph
+     */
+    public double rankOf(N node) {
+      requireNonNull(node, "node");
+      int index = indexedGraph.indexOf(node);
+      checkArgument(index >= 0, NODE_IS_NOT_IN_THIS_GRAPH, node);
+      return pageRanks[index];
+    }
+
+    /**
+     * Returns the page ranks of the {@code k} nodes with the highest page ranks, sorted from
+     * highest to lowest, or of all nodes if there are fewer than {@code k}. Nodes with equal page
+     * ranks are ordered as they are in {@link #ranks()}.
+     *
+     * <p>This takes {@code O(n log k)} time, where {@code n} is the number of nodes, and only
+     * allocates {@code k} entries.
+     *
+     * @throws IllegalArgumentException if {@code k} is negative
+     */
+    public ImmutableMap<N, Double> topRanks(int k) {
+      checkArgument(k >= 0, "k must be non-negative but was %s", k);
+      return k >= pageRanks.length ? ranks() : SortedRanks.top(indexedGraph, pageRanks, k);
+    }
+
+    /** Returns the number of iterations that were run. */
+    public int iterations() {
+      return iterations;
+    }
+
+    /**
+     * Returns the residual between the page ranks of the last two iterations, as measured by the
+     * algorithm's {@linkplain PageRanksAlgorithm#withResidualNorm residual norm}.
+     */
+    public double residual() {
+      return residual;
+    }
+
+    /**
+     * Returns {@code true} if the residual fell to or below the algorithm's {@linkplain
+     * PageRanksAlgorithm#withTolerance tolerance} within its {@linkplain
+     * PageRanksAlgorithm#withMaxIterations maximum iterations}, or {@code false} otherwise.
+     */
+    public boolean converged() {
+      return converged;
+    }
+
+    /**
+     * Returns {@code true} if the run was stopped before it converged or reached its maximum
+     * iterations, because its {@linkplain PageRanksAlgorithm#withDeadline deadline} passed or its
+     * thread was interrupted, or {@code false} otherwise. If so, the page ranks are those of the
+     * last iteration that was run.
+     */
+    public boolean stoppedEarly() {
+      return stoppedEarly;
+    }
+
+    @Override
+    public String toString() {
+      return "PageRanks{iterations="
+          + iterations
+          + ", residual="
+          + residual
+          + ", converged="
+          + converged
+          + (stoppedEarly ? ", stoppedEarly=true" : "")
+          + "}";
+    }
+  }
+
+  /**
+   * The result of {@link PageRanksAlgorithm#approximate(int, long)}: estimates of the page ranks of
+   * all nodes, along with the standard error of each estimate.
+   *
+   * <p>As a rule of thumb, a node's true page rank is within two standard errors of its estimate
+   * about 95% of the time. Nodes with low page ranks may not be visited by any walk at all, in
+   * which case both their estimated page rank and its standard error are zero.
+   */
+  public static final class ApproximatePageRanks<N> {
+    private final IndexedGraph<N> indexedGraph;
+    private final double[] pageRanks;
+    private final double[] standardErrors;
+    private final long walks;
+    private @Nullable ImmutableMap<N, Double> ranks;
+
+    private ApproximatePageRanks(
+        IndexedGraph<N> indexedGraph, double[] pageRanks, double[] standardErrors, long walks) {
+      this.indexedGraph = indexedGraph;
+      this.pageRanks = pageRanks;
+      this.standardErrors = standardErrors;
+      this.walks = walks;
+    }
+
+    /** Returns the estimated page ranks of all nodes, sorted from highest to lowest. */
+    public ImmutableMap<N, Double> ranks() {
+      var result = ranks;
+      if (result == null) {
+        result = SortedRanks.all(indexedGraph, pageRanks);
+        ranks = result;
+      }
+      return result;
+    }
+
+    /**
+     * Returns the estimated page ranks of the {@code k} nodes with the highest estimated page
+     * ranks, sorted from highest to lowest, or of all nodes if there are fewer than {@code k}.
+     *
+     * @throws IllegalArgumentException if {@code k} is negative
+     */
+    public ImmutableMap<N, Double> topRanks(int k) {
+      checkArgument(k >= 0, "k must be non-negative but was %s", k);
+      return k >= pageRanks.length ? ranks() : SortedRanks.top(indexedGraph, pageRanks, k);
+    }
+
+    /**
+     * Returns the estimated page rank of the given node.
+     *
+     * @throws IllegalArgumentException if {@code node} is not in the graph
+     */
+    public double rankOf(N node) {
+      return pageRanks[indexOf(node)];
+    }
+
+    /**
+     * Returns the standard error of the given node's estimated page rank.
+     *
+     * @throws IllegalArgumentException if {@code node} is not in the graph
+     */
+    public double standardError(N node) {
+      return standardErrors[indexOf(node)];
+    }
+
+    /** Returns the largest standard error of any node's estimated page rank. */
+    public double maxStandardError() {
+      double result = 0.0;
+      for (double standardError : standardErrors) {
+        result = Math.max(result, standardError);
       }
-      return dampingFactor * sum;
+      return result;
+    }
+
+    /** Returns the total number of walks that were run. */
+    public long walks() {
+      return walks;
+    }
+
+    private int indexOf(N node) {
+      requireNonNull(node, "node");
+      int index = indexedGraph.indexOf(node);
+      checkArgument(index >= 0, NODE_IS_NOT_IN_THIS_GRAPH, node);
+      return index;
+    }
+
+    @Override
+    public String toString() {
+      return "ApproximatePageRanks{walks="
+          + walks
+          + ", maxStandardError="
+          + maxStandardError()
+          + "}";
+    }
+  }
+
+  /**
+   * A stateful PageRank computation that keeps the page ranks of a graph up to date as the graph's
+   * edges and nodes change, without recalculating them from scratch. Created by {@link
+   * PageRanksAlgorithm#startSession()}.
+   *
+   * <p>The session keeps its own copy of the graph's structure, which is changed by {@link
+   * #putEdge}, {@link #removeEdge}, {@link #addNode}, {@link #removeNode} and {@link #update}.
+   * After each change, only the page ranks of the nodes affected by the change are corrected, so
+   * the cost of each change is proportional to how far its effects spread, not to the size of the
+   * graph.
+   *
+   * <p>Sessions are not thread-safe.
+   */
+  public static final class PageRanksSession<N> {
+    private final PageRanksPushKernel<N> kernel;
+
+    private PageRanksSession(PageRanksPushKernel<N> kernel) {
+      this.kernel = kernel;
+    }
+
+    /**
+     * Adds a node, which has no edges yet. Returns {@code true} if the node was not already in the
+     * graph.
+     */
+    public boolean addNode(N node) {
+      return kernel.addNode(node);
+    }
+
+    /** Removes a node and all its edges. Returns {@code true} if the node was in the graph. */
+    public boolean removeNode(N node) {
+      return kernel.removeNode(node);
+    }
+
+    /**
+     * Adds an edge from {@code source} to {@code target}, adding either node if it is not already
+     * in the graph. If the graph that the session was started with is undirected, then the edge is
+     * added in both directions. Returns {@code true} if the edge was not already in the graph.
+     */
+    public boolean putEdge(N source, N target) {
+      return kernel.putEdge(source, target);
+    }
+
+    /**
+     * Removes the edge from {@code source} to {@code target}, or the edge between them in both
+     * directions if the graph that the session was started with is undirected. Returns {@code
+     * true} if the edge was in the graph.
+     */
+    public boolean removeEdge(N source, N target) {
+      return kernel.removeEdge(source, target);
+    }
+
+    /**
+     * Changes this session's graph to match the given snapshot, by adding and removing the nodes
+     * and edges that differ between them. Comparing the two graphs takes time proportional to the
+     * snapshot's size, but only the page ranks affected by the differences are recalculated.
+     */
+    public void update(Graph<N> snapshot) {
+      kernel.update(snapshot);
+    }
+
+    /** Returns the current page rank of the given node. */
+    public double rankOf(N node) {
+      return kernel.rankOf(node);
+    }
+
+    /** Returns the current page ranks of all nodes, sorted from highest to lowest. */
+    public ImmutableMap<N, Double> ranks() {
+      return kernel.ranks();
+    }
+
+    /**
+     * Returns the total number of times that a node's residual has been pushed to its successors
+     * since the session was started, which is a measure of how much work the session has done.
+     */
+    public long pushes() {
+      return kernel.pushes();
+    }
+  }
+
+  /**
+   * Returns an algorithm that calculates the hub and authority scores of all nodes of the given
+   * graph, as per Kleinberg's <a href='https://en.wikipedia.org/wiki/HITS_algorithm'>HITS
+   * algorithm</a>. A node's authority score is the sum of the hub scores of its predecessors, and
+   * its hub score is the sum of the authority scores of its successors, so good hubs point to good
+   * authorities, and good authorities are pointed to by good hubs.
+   *
+   * <p>The scores are found with power iteration, starting from equal scores for every node, and
+   * each of the hub scores and authority scores are normalized to sum to one. For undirected
+   * graphs, every node's hub score converges to its authority score.
+   *
+   * @param graph the graph to calculate the hub and authority scores of; must not be null
+   * @param <N> the node type
+   * @return an algorithm that calculates the hub and authority scores of the graph's nodes
+   */
+  public static <N> HitsAlgorithm<N> hits(Graph<N> graph) {
+    requireNonNull(graph, "graph");
+    return new HitsAlgorithm<>(graph);
+  }
+
+  public static final class HitsAlgorithm<N> {
+    private final Graph<N> graph;
+    private int maxIterations = DEFAULT_MAX_ITERATIONS;
+    private double tolerance = DEFAULT_TOLERANCE;
+
+    private HitsAlgorithm(Graph<N> graph) {
+      this.graph = graph;
+    }
+
+    /**
+     * Sets the most iterations that will be run before giving up on the scores converging.
+     * Defaults to 10,000.
+     *
+     * @throws IllegalArgumentException if {@code maxIterations} is not positive
+     */
+    public HitsAlgorithm<N> withMaxIterations(int maxIterations) {
+      checkArgument(maxIterations > 0, "maxIterations must be positive but was %s", maxIterations);
+      this.maxIterations = maxIterations;
+      return this;
+    }
+
+    /**
+     * Sets the residual at or below which the scores are considered to have converged, at which
+     * point no more iterations will be run. The residual is the larger of the sums of the absolute
+     * differences of every node's hub score and of every node's authority score, between the last
+     * two iterations. Defaults to {@code 1.0e-10}.
+     *
+     * @throws IllegalArgumentException if {@code tolerance} is negative or NaN
+     */
+    public HitsAlgorithm<N> withTolerance(double tolerance) {
+      checkArgument(tolerance >= 0.0, "tolerance must be non-negative but was %s", tolerance);
+      this.tolerance = tolerance;
+      return this;
+    }
+
+    /**
+     * Returns the hub and authority scores of all nodes, along with the number of iterations that
+     * were run and the final residual, so that callers can tell whether the scores converged.
+     */
+    public Hits<N> run() {
+      // Index the nodes and edges up front, in both directions, so that each iteration finds both
+      // scores in two passes over primitive arrays.
+      IndexedGraph<N> indexedGraph = IndexedGraph.of(graph);
+      var kernel = new HitsKernel(indexedGraph);
+
+      int iterations = 0;
+      double residual = Double.POSITIVE_INFINITY;
+      while (iterations < maxIterations && residual > tolerance) {
+        residual = kernel.iterate();
+        iterations++;
+      }
+
+      return new Hits<>(
+          indexedGraph,
+          kernel.hubs(),
+          kernel.authorities(),
+          iterations,
+          residual,
+          residual <= tolerance);
+    }
+  }
+
+  /** The result of {@link HitsAlgorithm#run()}: the hub and authority scores of all nodes. */
+  public static final class Hits<N> {
+    private final IndexedGraph<N> indexedGraph;
+    private final double[] hubs;
+    private final double[] authorities;
+    private final int iterations;
+    private final double residual;
+    private final boolean converged;
+    private @Nullable ImmutableMap<N, Double> sortedHubs;
+    private @Nullable ImmutableMap<N, Double> sortedAuthorities;
+
+    private Hits(
+        IndexedGraph<N> indexedGraph,
+        double[] hubs,
+        double[] authorities,
+        int iterations,
+        double residual,
+        boolean converged) {
+      this.indexedGraph = indexedGraph;
+      this.hubs = hubs;
+      this.authorities = authorities;
+      this.iterations = iterations;
+      this.residual = residual;
+      this.converged = converged;
+    }
+
+    /** Returns the hub scores of all nodes, sorted from highest to lowest. */
+    public ImmutableMap<N, Double> hubs() {
+      var result = sortedHubs;
+      if (result == null) {
+        result = SortedRanks.all(indexedGraph, hubs);
+        sortedHubs = result;
+      }
+      return result;
+    }
+
+    /** Returns the authority scores of all nodes, sorted from highest to lowest. */
+    public ImmutableMap<N, Double> authorities() {
+      var result = sortedAuthorities;
+      if (result == null) {
+        result = SortedRanks.all(indexedGraph, authorities);
+        sortedAuthorities = result;
+      }
+      return result;
+    }
+
+    /**
+     * Returns the hub score of the given node.
+     *
+     * @throws IllegalArgumentException if {@code node} is not in the graph
+     */
+    public double hubOf(N node) {
+      return hubs[indexOf(node)];
+    }
+
+    /**
+     * Returns the authority score of the given node.
+     *
+     * @throws IllegalArgumentException if {@code node} is not in the graph
+     */
+    public double authorityOf(N node) {
+      return authorities[indexOf(node)];
+    }
+
+    /** Returns the number of iterations that were run. */
+    public int iterations() {
+      return iterations;
+    }
+
+    /**
+     * Returns the residual between the scores of the last two iterations, as described by {@link
+     * HitsAlgorithm#withTolerance(double)}.
+     */
+    public double residual() {
+      return residual;
+    }
+
+    /**
+     * Returns {@code true} if the residual fell to or below the algorithm's {@linkplain
+     * HitsAlgorithm#withTolerance tolerance} within its {@linkplain
+     * HitsAlgorithm#withMaxIterations maximum iterations}, or {@code false} otherwise.
+     */
+    public boolean converged() {
+      return converged;
+    }
+
+    private int indexOf(N node) {
+      requireNonNull(node, "node");
+      int index = indexedGraph.indexOf(node);
+      checkArgument(index >= 0, NODE_IS_NOT_IN_THIS_GRAPH, node);
+      return index;
+    }
+
+    @Override
+    public String toString() {
+      return "Hits{iterations="
+          + iterations
+          + ", residual="
+          + residual
+          + ", converged="
+          + converged
+          + "}";
+    }
+  }
+
+  private static long saturatedNanos(Duration duration) {
+    try {
+      return duration.toNanos();
+    } catch (ArithmeticException e) {
+      return Long.MAX_VALUE;
     }
   }
 
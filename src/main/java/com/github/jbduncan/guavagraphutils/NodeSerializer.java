@@ -0,0 +1,24 @@
+package com.github.jbduncan.guavagraphutils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes nodes to, and reads them back from, a binary stream. Used by {@link
+ * MoreGraphs#buildGraphWithCheckpoints} and {@link MoreGraphs#resumeBuildGraphFromCheckpoint} to
+ * save the progress of a build to a file.
+ *
+ * <p>{@link #read(DataInput)} must return a node that is {@linkplain Object#equals(Object) equal}
+ * to the one that was written, and must read exactly the bytes that {@link #write(Object,
+ * DataOutput)} wrote.
+ *
+ * @param <N> the type of the nodes
+ */
+public interface NodeSerializer<N> {
+  /** Writes the given node to the given output. */
+  void write(N node, DataOutput out) throws IOException;
+
+  /** Reads a node from the given input. */
+  N read(DataInput in) throws IOException;
+}
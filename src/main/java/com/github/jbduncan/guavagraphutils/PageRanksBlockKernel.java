@@ -0,0 +1,206 @@
+package com.github.jbduncan.guavagraphutils;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A variant of {@link PageRanksKernel} that runs power iterations for many personalization vectors
+ * at once, so that each iteration makes one pass over the edges for all of them rather than one
+ * pass each.
+ *
+ * <p>The page ranks are kept in a dense {@code nodeCount * width} block, laid out node by node, so
+ * that the {@code width} page ranks of each predecessor are read contiguously. The personalization
+ * vectors are usually sparse, so they are kept in compressed sparse row form, node by node, rather
+ * than as another dense block.
+ */
+final class PageRanksBlockKernel {
+  private final IndexedGraph<?> indexedGraph;
+  private final int width;
+  private final double dampingFactor;
+  private final PageRanksChunks chunks;
+  private final double[] inverseOutWeights;
+
+  // The personalization vectors' entries for node i are at [teleportOffsets[i],
+  // teleportOffsets[i + 1]) of teleportColumns and teleportWeights.
+  private final int[] teleportOffsets;
+  private final int[] teleportColumns;
+  private final double[] teleportWeights;
+
+  private double[] currentPageRanks;
+  private double[] nextPageRanks;
+  private double[] currentContributions;
+  private double[] nextContributions;
+  private final double[] currentSums;
+  private final double[] currentDanglingSums;
+  private final double[] residuals;
+
+  /**
+   * Creates a kernel for the given personalization vectors, each of which must be non-negative and
+   * sum to one.
+   */
+  PageRanksBlockKernel(
+      IndexedGraph<?> indexedGraph,
+      double[][] teleports,
+      double dampingFactor,
+      MoreGraphs.PageRanksAlgorithm.ResidualNorm residualNorm,
+      @Nullable ForkJoinPool pool,
+      int parallelism) {
+    this.indexedGraph = indexedGraph;
+    this.width = teleports.length;
+    this.dampingFactor = dampingFactor;
+    this.chunks = new PageRanksChunks(indexedGraph, width, residualNorm, pool, parallelism);
+    this.inverseOutWeights = PageRanksKernel.inverseOutWeights(indexedGraph);
+
+    int nodeCount = indexedGraph.nodeCount();
+    this.teleportOffsets = new int[nodeCount + 1];
+    for (double[] teleport : teleports) {
+      for (int node = 0; node < nodeCount; node++) {
+        if (teleport[node] != 0.0) {
+          teleportOffsets[node + 1]++;
+        }
+      }
+    }
+    for (int node = 0; node < nodeCount; node++) {
+      teleportOffsets[node + 1] += teleportOffsets[node];
+    }
+    this.teleportColumns = new int[teleportOffsets[nodeCount]];
+    this.teleportWeights = new double[teleportOffsets[nodeCount]];
+    int[] next = Arrays.copyOf(teleportOffsets, nodeCount);
+    for (int column = 0; column < width; column++) {
+      for (int node = 0; node < nodeCount; node++) {
+        double weight = teleports[column][node];
+        if (weight != 0.0) {
+          teleportColumns[next[node]] = column;
+          teleportWeights[next[node]] = weight;
+          next[node]++;
+        }
+      }
+    }
+
+    this.currentPageRanks = new double[nodeCount * width];
+    Arrays.fill(currentPageRanks, 1.0 / nodeCount);
+    this.nextPageRanks = new double[nodeCount * width];
+    this.currentContributions = new double[nodeCount * width];
+    this.nextContributions = new double[nodeCount * width];
+    this.currentSums = new double[width];
+    this.currentDanglingSums = new double[width];
+    for (int node = 0; node < nodeCount; node++) {
+      for (int column = 0; column < width; column++) {
+        double pageRank = currentPageRanks[node * width + column];
+        currentContributions[node * width + column] = pageRank * inverseOutWeights[node];
+        currentSums[column] += pageRank;
+      }
+    }
+    for (int danglingNode : indexedGraph.danglingNodes()) {
+      for (int column = 0; column < width; column++) {
+        currentDanglingSums[column] += currentPageRanks[danglingNode * width + column];
+      }
+    }
+    this.residuals = new double[width];
+  }
+
+  /**
+   * Runs one iteration for every personalization vector. Returns the largest residual of any of
+   * them; see {@link #residual(int)} for each one's residual.
+   */
+  double iterate() {
+    double[] teleportMasses = new double[width];
+    for (int column = 0; column < width; column++) {
+      teleportMasses[column] =
+          (1 - dampingFactor) * currentSums[column] + dampingFactor * currentDanglingSums[column];
+    }
+
+    chunks.run(chunk -> sweep(chunk, teleportMasses));
+    for (int column = 0; column < width; column++) {
+      residuals[column] = chunks.residual(column);
+      currentSums[column] = chunks.sum(column);
+      currentDanglingSums[column] = chunks.danglingSum(column);
+    }
+
+    var tmp = currentPageRanks;
+    currentPageRanks = nextPageRanks;
+    nextPageRanks = tmp;
+    tmp = currentContributions;
+    currentContributions = nextContributions;
+    nextContributions = tmp;
+
+    double largestResidual = 0.0;
+    for (double residual : residuals) {
+      largestResidual = Math.max(largestResidual, residual);
+    }
+    return largestResidual;
+  }
+
+  /** Returns the residual of the given personalization vector's latest iteration. */
+  double residual(int column) {
+    return residuals[column];
+  }
+
+  /** Returns a copy of the page ranks for the given personalization vector. */
+  double[] pageRanks(int column) {
+    int nodeCount = indexedGraph.nodeCount();
+    double[] result = new double[nodeCount];
+    for (int node = 0; node < nodeCount; node++) {
+      result[node] = currentPageRanks[node * width + column];
+    }
+    return result;
+  }
+
+  private void sweep(int chunk, double[] teleportMasses) {
+    int width = this.width;
+    int[] predecessorOffsets = indexedGraph.predecessorOffsets();
+    int[] predecessors = indexedGraph.predecessors();
+    double @Nullable [] predecessorWeights = indexedGraph.predecessorWeights();
+    double[] inverseOutWeights = this.inverseOutWeights;
+    double[] currentPageRanks = this.currentPageRanks;
+    double[] nextPageRanks = this.nextPageRanks;
+    double[] currentContributions = this.currentContributions;
+    double[] nextContributions = this.nextContributions;
+    double dampingFactor = this.dampingFactor;
+    boolean l1 = chunks.l1();
+
+    double[] pageRanks = new double[width];
+    double[] residuals = new double[width];
+    double[] sums = new double[width];
+    double[] danglingSums = new double[width];
+    int to = chunks.to(chunk);
+    for (int node = chunks.from(chunk); node < to; node++) {
+      Arrays.fill(pageRanks, 0.0);
+      for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+        int base = predecessors[i] * width;
+        double weight = predecessorWeights == null ? 1.0 : predecessorWeights[i];
+        for (int column = 0; column < width; column++) {
+          pageRanks[column] += currentContributions[base + column] * weight;
+        }
+      }
+      for (int column = 0; column < width; column++) {
+        pageRanks[column] *= dampingFactor;
+      }
+      for (int i = teleportOffsets[node]; i < teleportOffsets[node + 1]; i++) {
+        int column = teleportColumns[i];
+        pageRanks[column] += teleportMasses[column] * teleportWeights[i];
+      }
+
+      int base = node * width;
+      double inverseOutWeight = inverseOutWeights[node];
+      for (int column = 0; column < width; column++) {
+        double pageRank = pageRanks[column];
+        nextPageRanks[base + column] = pageRank;
+        nextContributions[base + column] = pageRank * inverseOutWeight;
+
+        double difference = Math.abs(pageRank - currentPageRanks[base + column]);
+        residuals[column] =
+            l1 ? residuals[column] + difference : Math.max(residuals[column], difference);
+        sums[column] += pageRank;
+        if (inverseOutWeight == 0.0) {
+          danglingSums[column] += pageRank;
+        }
+      }
+    }
+
+    for (int column = 0; column < width; column++) {
+      chunks.record(chunk, column, residuals[column], sums[column], danglingSums[column]);
+    }
+  }
+}
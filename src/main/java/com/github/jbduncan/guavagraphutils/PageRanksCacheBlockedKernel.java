@@ -0,0 +1,188 @@
+package com.github.jbduncan.guavagraphutils;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A variant of {@link PageRanksKernel} for graphs whose page ranks do not fit in the CPU caches.
+ *
+ * <p>{@link PageRanksKernel} visits each node in turn and gathers the contributions of its
+ * predecessors, which may be anywhere in the graph, so on large graphs, nearly every edge reads
+ * from a part of the contributions array that is not in the cache. Instead, this kernel splits the
+ * nodes into <i>source blocks</i> of {@link #BLOCK_SIZE} consecutive nodes, whose contributions fit
+ * in a typical L2 cache, and sorts the edges by the source block of their source node, then by
+ * their target node, up front. Each iteration then streams through the edges one source block at
+ * a time, adding each edge's contribution to its target's incoming page rank, so the reads of the
+ * contributions stay within the cache, and the targets are visited in index order.
+ *
+ * <p>Sorting the edges takes extra memory for a second copy of them, with both their source and
+ * target nodes. Streaming through them also costs more than it saves when the graph's page ranks
+ * already fit in the cache, or when its nodes are numbered so that most edges are between nearby
+ * nodes. It helps most on large graphs whose edges join nodes that are far apart in the node
+ * numbering, where {@link PageRanksKernel} would miss the cache on nearly every edge.
+ *
+ * <p>Otherwise, this kernel works as {@link PageRanksKernel} does, with the same {@link
+ * PageRanksVectors} and {@link PageRanksChunks}. Each chunk makes its own passes over its own
+ * nodes.
+ */
+final class PageRanksCacheBlockedKernel implements PageRanksIteration {
+  // 2^15 contributions take up 256 KiB.
+  private static final int BLOCK_SHIFT = 15;
+  static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+  private final double dampingFactor;
+  private final PageRanksChunks chunks;
+  private final double[] inverseOutWeights;
+  private final double @Nullable [] teleport;
+
+  // The edges sorted by source block, then by target node. The edges from source block b are at
+  // indexes [blockOffsets[b], blockOffsets[b + 1]) of sources, targets and sourceWeights.
+  private final int[] blockOffsets;
+  private final int[] sources;
+  private final int[] targets;
+  private final double @Nullable [] sourceWeights;
+
+  private final PageRanksVectors vectors;
+
+  PageRanksCacheBlockedKernel(
+      IndexedGraph<?> indexedGraph,
+      double dampingFactor,
+      MoreGraphs.PageRanksAlgorithm.ResidualNorm residualNorm,
+      double @Nullable [] teleport,
+      double @Nullable [] initialPageRanks,
+      @Nullable ForkJoinPool pool,
+      int parallelism) {
+    this.dampingFactor = dampingFactor;
+    this.teleport = teleport;
+    this.chunks = new PageRanksChunks(indexedGraph, 1, residualNorm, pool, parallelism);
+
+    int nodeCount = indexedGraph.nodeCount();
+    this.inverseOutWeights = PageRanksKernel.inverseOutWeights(indexedGraph);
+
+    // Counting sort the edges by source block. Visiting the targets in index order keeps each
+    // source block's edges sorted by target.
+    int[] predecessorOffsets = indexedGraph.predecessorOffsets();
+    int[] predecessors = indexedGraph.predecessors();
+    double @Nullable [] predecessorWeights = indexedGraph.predecessorWeights();
+    int blockCount = (nodeCount + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+    int[] edgeOffsets = new int[blockCount + 1];
+    for (int predecessor : predecessors) {
+      edgeOffsets[(predecessor >>> BLOCK_SHIFT) + 1]++;
+    }
+    for (int block = 0; block < blockCount; block++) {
+      edgeOffsets[block + 1] += edgeOffsets[block];
+    }
+    int edgeCount = predecessors.length;
+    int[] sources = new int[edgeCount];
+    int[] targets = new int[edgeCount];
+    double @Nullable [] sourceWeights =
+        predecessorWeights == null ? null : new double[edgeCount];
+    int[] nextEdges = Arrays.copyOf(edgeOffsets, blockCount);
+    for (int node = 0; node < nodeCount; node++) {
+      for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+        int edge = nextEdges[predecessors[i] >>> BLOCK_SHIFT]++;
+        sources[edge] = predecessors[i];
+        targets[edge] = node;
+        if (sourceWeights != null && predecessorWeights != null) {
+          sourceWeights[edge] = predecessorWeights[i];
+        }
+      }
+    }
+
+    this.blockOffsets = edgeOffsets;
+    this.sources = sources;
+    this.targets = targets;
+    this.sourceWeights = sourceWeights;
+    this.vectors = new PageRanksVectors(indexedGraph, inverseOutWeights, initialPageRanks);
+  }
+
+  @Override
+  public double iterate() {
+    double teleportMass = vectors.teleportMass(dampingFactor);
+    chunks.run(chunk -> sweep(chunk, teleportMass));
+    vectors.advance(chunks.sum(0), chunks.danglingSum(0));
+    return chunks.residual(0);
+  }
+
+  @Override
+  public double[] pageRanks() {
+    return vectors.currentPageRanks();
+  }
+
+  /** Computes the next page ranks of the nodes in the given chunk, and their partial sums. */
+  private void sweep(int chunk, double teleportMass) {
+    int[] sources = this.sources;
+    int[] targets = this.targets;
+    double @Nullable [] sourceWeights = this.sourceWeights;
+    double[] inverseOutWeights = this.inverseOutWeights;
+    double @Nullable [] teleport = this.teleport;
+    double uniformTeleport = teleportMass / inverseOutWeights.length;
+    double[] currentPageRanks = vectors.currentPageRanks();
+    // The incoming contributions are added up in place, before they become page ranks.
+    double[] nextPageRanks = vectors.nextPageRanks();
+    double[] currentContributions = vectors.currentContributions();
+    double[] nextContributions = vectors.nextContributions();
+    double dampingFactor = this.dampingFactor;
+    boolean l1 = chunks.l1();
+
+    int from = chunks.from(chunk);
+    int to = chunks.to(chunk);
+    Arrays.fill(nextPageRanks, from, to, 0.0);
+    for (int block = 0; block + 1 < blockOffsets.length; block++) {
+      int blockFrom = firstEdge(block, from);
+      int blockTo = firstEdge(block, to);
+      if (sourceWeights == null) {
+        for (int i = blockFrom; i < blockTo; i++) {
+          nextPageRanks[targets[i]] += currentContributions[sources[i]];
+        }
+      } else {
+        for (int i = blockFrom; i < blockTo; i++) {
+          nextPageRanks[targets[i]] += currentContributions[sources[i]] * sourceWeights[i];
+        }
+      }
+    }
+
+    double residual = 0.0;
+    double sum = 0.0;
+    double danglingSum = 0.0;
+    for (int node = from; node < to; node++) {
+      double pageRank =
+          (teleport == null ? uniformTeleport : teleportMass * teleport[node])
+              + dampingFactor * nextPageRanks[node];
+      nextPageRanks[node] = pageRank;
+      double inverseOutWeight = inverseOutWeights[node];
+      nextContributions[node] = pageRank * inverseOutWeight;
+
+      double difference = Math.abs(pageRank - currentPageRanks[node]);
+      residual = l1 ? residual + difference : Math.max(residual, difference);
+      sum += pageRank;
+      if (inverseOutWeight == 0.0) {
+        danglingSum += pageRank;
+      }
+    }
+
+    chunks.record(chunk, 0, residual, sum, danglingSum);
+  }
+
+  /** Returns the index of the first edge from the given source block to {@code node} or later. */
+  private int firstEdge(int block, int node) {
+    int low = blockOffsets[block];
+    int high = blockOffsets[block + 1];
+    if (node == 0) {
+      return low;
+    }
+    if (node == inverseOutWeights.length) {
+      return high;
+    }
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (targets[middle] < node) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+}
@@ -0,0 +1,143 @@
+package com.github.jbduncan.guavagraphutils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Splits the nodes of an {@link IndexedGraph} into contiguous chunks for the page rank kernels,
+ * runs each iteration's sweep over every chunk, and holds each chunk's partial results of the
+ * latest sweep: its residual, the sum of its page ranks, and the sum of its dangling nodes' page
+ * ranks.
+ *
+ * <p>If a {@link ForkJoinPool} is given, then the chunks have roughly the same number of nodes and
+ * edges each, as per {@link PageRanksKernel#chunkBoundaries}, and are swept concurrently.
+ * Otherwise, there is one chunk, which is swept on the calling thread. The partial results are
+ * reduced in chunk order, so the results are deterministic for a given number of chunks.
+ *
+ * <p>Kernels that sweep several page rank vectors at once have a partial result per chunk for
+ * each of the {@code width} vectors, which are told apart by their column.
+ */
+final class PageRanksChunks {
+  private final @Nullable ForkJoinPool pool;
+  private final int[] boundaries;
+  private final int width;
+  private final boolean l1;
+
+  // Laid out chunk by chunk, then column by column
+  private final double[] residuals;
+  private final double[] sums;
+  private final double[] danglingSums;
+
+  PageRanksChunks(
+      IndexedGraph<?> indexedGraph,
+      int width,
+      MoreGraphs.PageRanksAlgorithm.ResidualNorm residualNorm,
+      @Nullable ForkJoinPool pool,
+      int parallelism) {
+    this.boundaries =
+        pool == null
+            ? new int[] {0, indexedGraph.nodeCount()}
+            : PageRanksKernel.chunkBoundaries(indexedGraph, parallelism);
+    this.pool = boundaries.length > 2 ? pool : null;
+    this.width = width;
+    this.l1 = residualNorm == MoreGraphs.PageRanksAlgorithm.ResidualNorm.L1;
+    int chunkCount = boundaries.length - 1;
+    this.residuals = new double[chunkCount * width];
+    this.sums = new double[chunkCount * width];
+    this.danglingSums = new double[chunkCount * width];
+  }
+
+  int count() {
+    return boundaries.length - 1;
+  }
+
+  /** Returns the first node of the given chunk. */
+  int from(int chunk) {
+    return boundaries[chunk];
+  }
+
+  /** Returns one past the last node of the given chunk. */
+  int to(int chunk) {
+    return boundaries[chunk + 1];
+  }
+
+  /** Returns {@code true} if residuals are measured with the L1 norm, rather than L-infinity. */
+  boolean l1() {
+    return l1;
+  }
+
+  /**
+   * Sweeps every chunk, and returns once they have all finished. If any sweep throws, the others
+   * are still waited for, so that none of them is left writing to the kernel's arrays, and then the
+   * first exception is rethrown, with any others suppressed.
+   */
+  void run(IntConsumer sweep) {
+    var pool = this.pool;
+    int chunkCount = count();
+    if (pool == null) {
+      for (int chunk = 0; chunk < chunkCount; chunk++) {
+        sweep.accept(chunk);
+      }
+      return;
+    }
+
+    ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunkCount];
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      int thisChunk = chunk;
+      tasks[chunk] = pool.submit(() -> sweep.accept(thisChunk));
+    }
+    // Joining every chunk acts as a barrier between iterations.
+    @Nullable RuntimeException failure = null;
+    for (ForkJoinTask<?> task : tasks) {
+      try {
+        task.join();
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /** Records a chunk's partial results for the given column. */
+  void record(int chunk, int column, double residual, double sum, double danglingSum) {
+    int i = chunk * width + column;
+    residuals[i] = residual;
+    sums[i] = sum;
+    danglingSums[i] = danglingSum;
+  }
+
+  /** Returns the residual of the given column over every chunk. */
+  double residual(int column) {
+    double result = 0.0;
+    for (int i = column; i < residuals.length; i += width) {
+      result = l1 ? result + residuals[i] : Math.max(result, residuals[i]);
+    }
+    return result;
+  }
+
+  /** Returns the sum of the given column's page ranks over every chunk. */
+  double sum(int column) {
+    double result = 0.0;
+    for (int i = column; i < sums.length; i += width) {
+      result += sums[i];
+    }
+    return result;
+  }
+
+  /** Returns the sum of the given column's dangling nodes' page ranks over every chunk. */
+  double danglingSum(int column) {
+    double result = 0.0;
+    for (int i = column; i < danglingSums.length; i += width) {
+      result += danglingSums[i];
+    }
+    return result;
+  }
+}
@@ -0,0 +1,209 @@
+package com.github.jbduncan.guavagraphutils;
+
+import java.util.concurrent.ForkJoinPool;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A variant of {@link PageRanksKernel} that stores the page ranks and contributions as {@code
+ * float}s rather than {@code double}s, halving the memory that they take up, and the memory
+ * bandwidth that each iteration uses to read and write them.
+ *
+ * <p>Only the storage is single precision: each node's new page rank is calculated in double
+ * precision before it is rounded to a {@code float}. The sums of all the page ranks, and of the
+ * dangling nodes' page ranks, decide how much page rank mass is teleported, so they are summed
+ * with <a href='https://en.wikipedia.org/wiki/Kahan_summation_algorithm'>Kahan summation</a>, to
+ * stop rounding errors from building up over millions of nodes. Each chunk of {@link
+ * PageRanksChunks} sums its own nodes this way, and the few compensated per-chunk sums are then
+ * added up directly.
+ *
+ * <p>Rounding each page rank to a {@code float} leaves an error of about {@code 1e-7} of its value,
+ * so once the page ranks have converged, they keep jittering by about that much from one iteration
+ * to the next, and the residual never reaches a tolerance much smaller than that. To let iterations
+ * stop anyway, {@link #atPrecisionLimit()} reports when the residual is within a few rounding
+ * errors, while the residual itself is still returned as is. The page ranks are also scaled by
+ * their sum when returned, as their rounding errors make the sum drift from one.
+ */
+final class PageRanksFloatKernel implements PageRanksIteration {
+  // How many times the rounding error of a page rank that the residual may be, and still only be
+  // the page ranks jittering as they are rounded, rather than them still converging
+  private static final int ROUNDING_ERRORS = 8;
+
+  private final IndexedGraph<?> indexedGraph;
+  private final double dampingFactor;
+  private final PageRanksChunks chunks;
+  // Zero for dangling nodes
+  private final float[] inverseOutWeights;
+  // The personalization vector, or null for uniform teleportation
+  private final double @Nullable [] teleport;
+
+  private float[] currentPageRanks;
+  private float[] nextPageRanks;
+  // Each node's page rank divided by its out-weight
+  private float[] currentContributions;
+  private float[] nextContributions;
+  private double currentSum;
+  private double currentDanglingSum;
+  private boolean atPrecisionLimit;
+
+  // The largest page rank in each chunk of the latest sweep
+  private final double[] chunkMaxPageRanks;
+
+  PageRanksFloatKernel(
+      IndexedGraph<?> indexedGraph,
+      double dampingFactor,
+      MoreGraphs.PageRanksAlgorithm.ResidualNorm residualNorm,
+      double @Nullable [] teleport,
+      double @Nullable [] initialPageRanks,
+      @Nullable ForkJoinPool pool,
+      int parallelism) {
+    this.indexedGraph = indexedGraph;
+    this.dampingFactor = dampingFactor;
+    this.teleport = teleport;
+    this.chunks = new PageRanksChunks(indexedGraph, 1, residualNorm, pool, parallelism);
+
+    int nodeCount = indexedGraph.nodeCount();
+    double[] inverseOutWeights = PageRanksKernel.inverseOutWeights(indexedGraph);
+    this.inverseOutWeights = new float[nodeCount];
+    this.currentPageRanks = new float[nodeCount];
+    this.nextPageRanks = new float[nodeCount];
+    this.currentContributions = new float[nodeCount];
+    this.nextContributions = new float[nodeCount];
+    var sum = new KahanSum();
+    var danglingSum = new KahanSum();
+    for (int node = 0; node < nodeCount; node++) {
+      this.inverseOutWeights[node] = (float) inverseOutWeights[node];
+      double pageRank = initialPageRanks == null ? 1.0 / nodeCount : initialPageRanks[node];
+      currentPageRanks[node] = (float) pageRank;
+      currentContributions[node] = (float) (pageRank * inverseOutWeights[node]);
+      sum.add(currentPageRanks[node]);
+      if (inverseOutWeights[node] == 0.0) {
+        danglingSum.add(currentPageRanks[node]);
+      }
+    }
+    this.currentSum = sum.value();
+    this.currentDanglingSum = danglingSum.value();
+    this.chunkMaxPageRanks = new double[chunks.count()];
+  }
+
+  @Override
+  public double iterate() {
+    double teleportMass = (1 - dampingFactor) * currentSum + dampingFactor * currentDanglingSum;
+
+    chunks.run(chunk -> sweep(chunk, teleportMass));
+    double residual = chunks.residual(0);
+    double maxPageRank = 0.0;
+    for (double chunkMaxPageRank : chunkMaxPageRanks) {
+      maxPageRank = Math.max(maxPageRank, chunkMaxPageRank);
+    }
+
+    var tmp = currentPageRanks;
+    currentPageRanks = nextPageRanks;
+    nextPageRanks = tmp;
+    tmp = currentContributions;
+    currentContributions = nextContributions;
+    nextContributions = tmp;
+    currentSum = chunks.sum(0);
+    currentDanglingSum = chunks.danglingSum(0);
+    // Each page rank is rounded to within half an ulp, or 2^-24 of its value, and the residual
+    // compares two rounded page ranks, so the residual stops falling at about this rounding error.
+    double roundingError = ROUNDING_ERRORS * 0x1.0p-24 * (chunks.l1() ? currentSum : maxPageRank);
+    atPrecisionLimit = residual <= roundingError;
+    return residual;
+  }
+
+  @Override
+  public boolean atPrecisionLimit() {
+    return atPrecisionLimit;
+  }
+
+  /** Returns a {@code double} copy of the page ranks. */
+  @Override
+  public double[] pageRanks() {
+    double[] result = new double[currentPageRanks.length];
+    double scale = currentSum == 0.0 ? 1.0 : 1.0 / currentSum;
+    for (int node = 0; node < result.length; node++) {
+      result[node] = currentPageRanks[node] * scale;
+    }
+    return result;
+  }
+
+  /** Computes the next page ranks of the nodes in the given chunk, and their partial sums. */
+  private void sweep(int chunk, double teleportMass) {
+    int[] predecessorOffsets = indexedGraph.predecessorOffsets();
+    int[] predecessors = indexedGraph.predecessors();
+    double @Nullable [] predecessorWeights = indexedGraph.predecessorWeights();
+    float[] inverseOutWeights = this.inverseOutWeights;
+    double @Nullable [] teleport = this.teleport;
+    double uniformTeleport = teleportMass / inverseOutWeights.length;
+    float[] currentPageRanks = this.currentPageRanks;
+    float[] nextPageRanks = this.nextPageRanks;
+    float[] currentContributions = this.currentContributions;
+    float[] nextContributions = this.nextContributions;
+    double dampingFactor = this.dampingFactor;
+    boolean l1 = chunks.l1();
+
+    double residual = 0.0;
+    double maxPageRank = 0.0;
+    // Kahan summation, inlined to keep the sums in registers
+    double sum = 0.0;
+    double sumCompensation = 0.0;
+    double danglingSum = 0.0;
+    double danglingSumCompensation = 0.0;
+    int to = chunks.to(chunk);
+    for (int node = chunks.from(chunk); node < to; node++) {
+      double incoming = 0.0;
+      if (predecessorWeights == null) {
+        for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+          incoming += currentContributions[predecessors[i]];
+        }
+      } else {
+        for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+          incoming += currentContributions[predecessors[i]] * predecessorWeights[i];
+        }
+      }
+
+      float pageRank =
+          (float)
+              ((teleport == null ? uniformTeleport : teleportMass * teleport[node])
+                  + dampingFactor * incoming);
+      nextPageRanks[node] = pageRank;
+      float inverseOutWeight = inverseOutWeights[node];
+      nextContributions[node] = pageRank * inverseOutWeight;
+
+      double difference = Math.abs(pageRank - currentPageRanks[node]);
+      residual = l1 ? residual + difference : Math.max(residual, difference);
+      maxPageRank = Math.max(maxPageRank, pageRank);
+      double y = pageRank - sumCompensation;
+      double t = sum + y;
+      sumCompensation = (t - sum) - y;
+      sum = t;
+      if (inverseOutWeight == 0.0f) {
+        y = pageRank - danglingSumCompensation;
+        t = danglingSum + y;
+        danglingSumCompensation = (t - danglingSum) - y;
+        danglingSum = t;
+      }
+    }
+
+    chunkMaxPageRanks[chunk] = maxPageRank;
+    chunks.record(
+        chunk, 0, residual, sum - sumCompensation, danglingSum - danglingSumCompensation);
+  }
+
+  /** A running sum that uses Kahan summation to compensate for rounding errors. */
+  private static final class KahanSum {
+    private double sum;
+    private double compensation;
+
+    void add(double value) {
+      double y = value - compensation;
+      double t = sum + y;
+      compensation = (t - sum) - y;
+      sum = t;
+    }
+
+    double value() {
+      return sum;
+    }
+  }
+}
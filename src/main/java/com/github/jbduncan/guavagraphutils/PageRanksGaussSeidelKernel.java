@@ -0,0 +1,146 @@
+package com.github.jbduncan.guavagraphutils;
+
+import java.util.Arrays;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An alternative to {@link PageRanksKernel} that solves for the page ranks with Gauss-Seidel
+ * iterations, or with successive over-relaxation (SOR) if the relaxation factor is not one.
+ *
+ * <p>Rather than calculating every node's new page rank from the previous iteration's page ranks,
+ * each node's page rank is updated in place, straight after those of its predecessors, so each
+ * iteration sees the page ranks of the nodes visited earlier in that same iteration. This lets page
+ * rank flow further per iteration, and only one page rank array is needed rather than two. To make
+ * the most of this, nodes are visited in {@linkplain IndexedGraph#forwardOrdering() forward
+ * order}, which, for directed acyclic graphs, finds the page ranks in a single iteration.
+ *
+ * <p>As with {@link PageRanksKernel}, the teleported page rank mass is worked out from the sum of
+ * the page ranks, and the sum of the dangling nodes' page ranks, as of the previous iteration.
+ * Updating in place means that the page ranks no longer keep summing to one, so the residual is
+ * measured relative to their sum, and they are normalized at the end.
+ *
+ * <p>Each iteration depends on the last node visited, so iterations always run on a single thread.
+ */
+final class PageRanksGaussSeidelKernel implements PageRanksIteration {
+  private final IndexedGraph<?> indexedGraph;
+  private final double dampingFactor;
+  private final double relaxationFactor;
+  private final boolean l1;
+  private final int[] order;
+  // Zero for dangling nodes
+  private final double[] inverseOutWeights;
+  // The personalization vector, or null for uniform teleportation
+  private final double @Nullable [] teleport;
+
+  private final double[] pageRanks;
+  // Each node's page rank divided by its out-weight
+  private final double[] contributions;
+  private double sum;
+  private double danglingSum;
+
+  PageRanksGaussSeidelKernel(
+      IndexedGraph<?> indexedGraph,
+      double dampingFactor,
+      double relaxationFactor,
+      MoreGraphs.PageRanksAlgorithm.ResidualNorm residualNorm,
+      double @Nullable [] teleport,
+      double @Nullable [] initialPageRanks) {
+    this.indexedGraph = indexedGraph;
+    this.dampingFactor = dampingFactor;
+    this.relaxationFactor = relaxationFactor;
+    this.l1 = residualNorm == MoreGraphs.PageRanksAlgorithm.ResidualNorm.L1;
+    this.order = indexedGraph.forwardOrdering();
+    this.inverseOutWeights = PageRanksKernel.inverseOutWeights(indexedGraph);
+    this.teleport = teleport;
+
+    int nodeCount = indexedGraph.nodeCount();
+    if (initialPageRanks == null) {
+      this.pageRanks = new double[nodeCount];
+      Arrays.fill(pageRanks, 1.0 / nodeCount);
+    } else {
+      this.pageRanks = initialPageRanks;
+    }
+    this.contributions = new double[nodeCount];
+    double sum = 0.0;
+    for (int node = 0; node < nodeCount; node++) {
+      contributions[node] = pageRanks[node] * inverseOutWeights[node];
+      sum += pageRanks[node];
+    }
+    this.sum = sum;
+    double danglingSum = 0.0;
+    for (int danglingNode : indexedGraph.danglingNodes()) {
+      danglingSum += pageRanks[danglingNode];
+    }
+    this.danglingSum = danglingSum;
+  }
+
+  @Override
+  public double iterate() {
+    int[] predecessorOffsets = indexedGraph.predecessorOffsets();
+    int[] predecessors = indexedGraph.predecessors();
+    double @Nullable [] predecessorWeights = indexedGraph.predecessorWeights();
+    double[] inverseOutWeights = this.inverseOutWeights;
+    double @Nullable [] teleport = this.teleport;
+    double[] pageRanks = this.pageRanks;
+    double[] contributions = this.contributions;
+    double dampingFactor = this.dampingFactor;
+    double relaxationFactor = this.relaxationFactor;
+    double teleportMass = (1 - dampingFactor) * sum + dampingFactor * danglingSum;
+    double uniformTeleport = teleportMass / pageRanks.length;
+
+    double residual = 0.0;
+    double sum = 0.0;
+    double danglingSum = 0.0;
+    for (int node : order) {
+      double incoming = 0.0;
+      if (predecessorWeights == null) {
+        for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+          incoming += contributions[predecessors[i]];
+        }
+      } else {
+        for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+          incoming += contributions[predecessors[i]] * predecessorWeights[i];
+        }
+      }
+
+      double oldPageRank = pageRanks[node];
+      double pageRank =
+          (teleport == null ? uniformTeleport : teleportMass * teleport[node])
+              + dampingFactor * incoming;
+      if (relaxationFactor != 1.0) {
+        pageRank = oldPageRank + relaxationFactor * (pageRank - oldPageRank);
+      }
+      pageRanks[node] = pageRank;
+      double inverseOutWeight = inverseOutWeights[node];
+      contributions[node] = pageRank * inverseOutWeight;
+
+      double difference = Math.abs(pageRank - oldPageRank);
+      residual = l1 ? residual + difference : Math.max(residual, difference);
+      sum += pageRank;
+      if (inverseOutWeight == 0.0) {
+        danglingSum += pageRank;
+      }
+    }
+    this.sum = sum;
+    this.danglingSum = danglingSum;
+    return sum == 0.0 ? residual : residual / sum;
+  }
+
+  /**
+   * Normalizes the page ranks in place, and returns them. Any later iterations continue from the
+   * normalized page ranks.
+   */
+  @Override
+  public double[] pageRanks() {
+    if (sum != 0.0 && sum != 1.0) {
+      double scale = 1.0 / sum;
+      for (int node = 0; node < pageRanks.length; node++) {
+        pageRanks[node] *= scale;
+        contributions[node] *= scale;
+      }
+      danglingSum *= scale;
+      sum = 1.0;
+    }
+    return pageRanks;
+  }
+}
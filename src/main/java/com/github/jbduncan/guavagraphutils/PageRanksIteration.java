@@ -0,0 +1,21 @@
+package com.github.jbduncan.guavagraphutils;
+
+/** One of the iterative methods that {@link MoreGraphs.PageRanksAlgorithm} can solve with. */
+interface PageRanksIteration {
+  /**
+   * Runs one iteration, after which {@link #pageRanks()} returns the new page ranks. Returns the
+   * residual between the old and new page ranks.
+   */
+  double iterate();
+
+  /**
+   * Returns {@code true} if the latest iteration's residual is within the rounding errors of how
+   * the page ranks are stored, so that more iterations cannot make it any smaller.
+   */
+  default boolean atPrecisionLimit() {
+    return false;
+  }
+
+  /** Returns the latest page ranks, indexed by node, summing to one. */
+  double[] pageRanks();
+}
@@ -0,0 +1,179 @@
+package com.github.jbduncan.guavagraphutils;
+
+import java.util.concurrent.ForkJoinPool;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The inner loop of {@link MoreGraphs.PageRanksAlgorithm}, which runs power iterations over an
+ * {@link IndexedGraph} with primitive page rank arrays.
+ *
+ * <p>Each iteration is a single fused sweep over the nodes and their predecessors. Rather than
+ * re-scanning every node for the dangling and teleport page rank mass, the sweep sums the new page
+ * ranks, and those of the dangling nodes, as a by-product, ready for the next iteration. It also
+ * stores each node's page rank divided by its out-degree, or by the sum of its outgoing edges'
+ * weights if the graph is weighted, so that the innermost loop reads one array per edge rather
+ * than two.
+ *
+ * <p>The teleported page rank mass is either spread uniformly across every node, or in proportion
+ * to a personalization vector. Likewise, the page ranks start either uniformly or from a given
+ * vector, such as the page ranks of an earlier run.
+ *
+ * <p>There is deliberately no SIMD variant of the sweep, such as one using the incubating Vector
+ * API. Most of each sweep's time goes to gathering the predecessors' contributions, which are
+ * scattered across memory, and the per-node arithmetic around it streams through several arrays,
+ * so it is bound by memory bandwidth rather than by arithmetic. Vectorizing the per-node
+ * arithmetic could therefore only speed up a small part of each sweep, which does not justify a
+ * multi-release JAR whose users would need to pass {@code --add-modules jdk.incubator.vector} to
+ * benefit.
+ *
+ * <p>If a {@link ForkJoinPool} is given, then the nodes are split into {@link PageRanksChunks} that
+ * are swept concurrently. Every iteration waits for all its chunks before the next iteration
+ * starts.
+ */
+final class PageRanksKernel implements PageRanksIteration {
+  // Chunks smaller than this, measured in nodes plus edges, cost more to schedule than to run.
+  private static final int MIN_CHUNK_WORK = 4096;
+  // More chunks than threads lets work-stealing even out chunks that run slower than others.
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final IndexedGraph<?> indexedGraph;
+  private final double dampingFactor;
+  private final PageRanksChunks chunks;
+  // Zero for dangling nodes
+  private final double[] inverseOutWeights;
+  // The personalization vector, or null for uniform teleportation
+  private final double @Nullable [] teleport;
+
+  private final PageRanksVectors vectors;
+
+  PageRanksKernel(
+      IndexedGraph<?> indexedGraph,
+      double dampingFactor,
+      MoreGraphs.PageRanksAlgorithm.ResidualNorm residualNorm,
+      double @Nullable [] teleport,
+      double @Nullable [] initialPageRanks,
+      @Nullable ForkJoinPool pool,
+      int parallelism) {
+    this.indexedGraph = indexedGraph;
+    this.dampingFactor = dampingFactor;
+    this.teleport = teleport;
+    this.chunks = new PageRanksChunks(indexedGraph, 1, residualNorm, pool, parallelism);
+
+    this.inverseOutWeights = inverseOutWeights(indexedGraph);
+    this.vectors = new PageRanksVectors(indexedGraph, inverseOutWeights, initialPageRanks);
+  }
+
+  /**
+   * Returns one over each node's out-weight, or zero for dangling nodes. A node's out-weight is the
+   * sum of its outgoing edges' weights if the graph is weighted, or its out-degree otherwise.
+   */
+  static double[] inverseOutWeights(IndexedGraph<?> indexedGraph) {
+    int[] outDegrees = indexedGraph.outDegrees();
+    double @Nullable [] outWeights = indexedGraph.outWeights();
+    double[] result = new double[outDegrees.length];
+    for (int node = 0; node < outDegrees.length; node++) {
+      double outWeight = outWeights == null ? outDegrees[node] : outWeights[node];
+      result[node] = outWeight == 0.0 ? 0.0 : 1.0 / outWeight;
+    }
+    return result;
+  }
+
+  /**
+   * Splits the nodes into contiguous chunks of roughly equal work, where a node's work is one plus
+   * its number of predecessors. Returns the chunk boundaries: chunk {@code i} covers the nodes in
+   * {@code [boundaries[i], boundaries[i + 1])}.
+   */
+  static int[] chunkBoundaries(IndexedGraph<?> indexedGraph, int parallelism) {
+    int nodeCount = indexedGraph.nodeCount();
+    int[] predecessorOffsets = indexedGraph.predecessorOffsets();
+    long totalWork = (long) nodeCount + predecessorOffsets[nodeCount];
+    int chunkCount =
+        (int)
+            Math.max(
+                1,
+                Math.min(
+                    (long) parallelism * CHUNKS_PER_THREAD,
+                    Math.min(nodeCount, totalWork / MIN_CHUNK_WORK)));
+
+    int[] boundaries = new int[chunkCount + 1];
+    boundaries[chunkCount] = nodeCount;
+    for (int chunk = 1; chunk < chunkCount; chunk++) {
+      long targetWork = totalWork * chunk / chunkCount;
+      // Binary search for the first node whose cumulative work reaches the target.
+      int low = boundaries[chunk - 1];
+      int high = nodeCount;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if ((long) mid + predecessorOffsets[mid] < targetWork) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      boundaries[chunk] = low;
+    }
+    return boundaries;
+  }
+
+  @Override
+  public double iterate() {
+    double teleportMass = vectors.teleportMass(dampingFactor);
+    chunks.run(chunk -> sweep(chunk, teleportMass));
+    vectors.advance(chunks.sum(0), chunks.danglingSum(0));
+    return chunks.residual(0);
+  }
+
+  @Override
+  public double[] pageRanks() {
+    return vectors.currentPageRanks();
+  }
+
+  /** Computes the next page ranks of the nodes in the given chunk, and their partial sums. */
+  private void sweep(int chunk, double teleportMass) {
+    int[] predecessorOffsets = indexedGraph.predecessorOffsets();
+    int[] predecessors = indexedGraph.predecessors();
+    double @Nullable [] predecessorWeights = indexedGraph.predecessorWeights();
+    double[] inverseOutWeights = this.inverseOutWeights;
+    double @Nullable [] teleport = this.teleport;
+    double uniformTeleport = teleportMass / inverseOutWeights.length;
+    double[] currentPageRanks = vectors.currentPageRanks();
+    double[] nextPageRanks = vectors.nextPageRanks();
+    double[] currentContributions = vectors.currentContributions();
+    double[] nextContributions = vectors.nextContributions();
+    double dampingFactor = this.dampingFactor;
+    boolean l1 = chunks.l1();
+
+    double residual = 0.0;
+    double sum = 0.0;
+    double danglingSum = 0.0;
+    int to = chunks.to(chunk);
+    for (int node = chunks.from(chunk); node < to; node++) {
+      double incoming = 0.0;
+      if (predecessorWeights == null) {
+        for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+          incoming += currentContributions[predecessors[i]];
+        }
+      } else {
+        for (int i = predecessorOffsets[node]; i < predecessorOffsets[node + 1]; i++) {
+          incoming += currentContributions[predecessors[i]] * predecessorWeights[i];
+        }
+      }
+
+      double pageRank =
+          (teleport == null ? uniformTeleport : teleportMass * teleport[node])
+              + dampingFactor * incoming;
+      nextPageRanks[node] = pageRank;
+      double inverseOutWeight = inverseOutWeights[node];
+      nextContributions[node] = pageRank * inverseOutWeight;
+
+      double difference = Math.abs(pageRank - currentPageRanks[node]);
+      residual = l1 ? residual + difference : Math.max(residual, difference);
+      sum += pageRank;
+      if (inverseOutWeight == 0.0) {
+        danglingSum += pageRank;
+      }
+    }
+
+    chunks.record(chunk, 0, residual, sum, danglingSum);
+  }
+}
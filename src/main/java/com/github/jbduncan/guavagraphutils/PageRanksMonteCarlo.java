@@ -0,0 +1,336 @@
+package com.github.jbduncan.guavagraphutils;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Estimates page ranks by simulating the random surfer that PageRank models, rather than by
+ * solving for the page ranks exactly.
+ *
+ * <p>Each walk starts at a node picked as per the teleport vector. At each step, the walk stops
+ * with probability {@code 1 - dampingFactor}, and otherwise follows a random outgoing edge, picked
+ * in proportion to the edges' weights if the graph is weighted. Dangling nodes have no edges to
+ * follow, so walks at them teleport instead. The expected number of times that a walk visits a
+ * node is then proportional to the node's page rank, so each node's page rank is estimated as its
+ * share of all the visits made by all the walks. This is the "complete path" Monte Carlo method of
+ * <a href='https://doi.org/10.1137/050643799'>Avrachenkov et al.</a>
+ *
+ * <p>The walks are split into fixed-size blocks, each with its own {@link SplittableRandom} split
+ * off from the seed in block order, and the blocks are shared out between worker threads. Every
+ * worker tallies its visits as integers, so the results depend only on the seed, not on how many
+ * workers there are or which worker ran which block.
+ *
+ * <p>Rather than tallying into its own array of every node's visits, which would take memory in
+ * proportion to the number of nodes for every worker, each worker tallies into a small, fixed-size
+ * hash table of its own, which combines repeat visits to the same node, such as the many visits to
+ * nodes with high page ranks. When a node is tallied into a slot that holds another node, and once
+ * the worker has finished, the slot's tallies are merged into a single table that all the workers
+ * share, with atomic adds. This makes fewer atomic adds to the shared table than tallying every
+ * walk into it directly, while the memory that each worker uses stays bounded.
+ *
+ * <p>Walks chase edges from one random node to another, so they are bound by memory latency. To
+ * make up for this, each worker interleaves the steps of several walks at once.
+ */
+final class PageRanksMonteCarlo {
+  private static final int WALKS_PER_BLOCK = 1 << 14;
+  // How many walks each worker steps through in turn. Each step of a walk depends on the memory
+  // reads of the step before, so a single walk spends most of its time waiting on cache misses,
+  // whereas interleaved walks let the CPU wait on many cache misses at once.
+  private static final int LANES = 16;
+  // The number of nodes that each worker's buffer of tallies has room for, as a power of two. Its
+  // 4,096 slots take up 80 KiB, which fits in a typical L2 cache.
+  private static final int BUFFER_BITS = 12;
+
+  private final IndexedGraph<?> indexedGraph;
+  private final double dampingFactor;
+  private final int walksPerNode;
+  private final long walks;
+  private final SplittableRandom[] blockRandoms;
+  // The nodes that walks can teleport to, with the cumulative sum of their normalized teleport
+  // weights, or null for uniform teleportation
+  private final int @Nullable [] teleportNodes;
+  private final double @Nullable [] cumulativeTeleport;
+
+  // Each node's visits, followed by the sum, over all walks, of the square of the number of times
+  // that each walk visited the node, side by side so that tallying a node touches one cache line
+  private final AtomicLongArray tallies;
+  private long totalVisits;
+
+  PageRanksMonteCarlo(
+      IndexedGraph<?> indexedGraph,
+      double dampingFactor,
+      double @Nullable [] teleport,
+      int walksPerNode,
+      long seed) {
+    int nodeCount = indexedGraph.nodeCount();
+    this.indexedGraph = indexedGraph;
+    this.dampingFactor = dampingFactor;
+    this.walksPerNode = walksPerNode;
+    this.walks = (long) walksPerNode * nodeCount;
+    int blockCount = Math.toIntExact((walks + WALKS_PER_BLOCK - 1) / WALKS_PER_BLOCK);
+    var random = new SplittableRandom(seed);
+    this.blockRandoms = new SplittableRandom[blockCount];
+    for (int block = 0; block < blockCount; block++) {
+      blockRandoms[block] = random.split();
+    }
+
+    if (teleport == null) {
+      this.teleportNodes = null;
+      this.cumulativeTeleport = null;
+    } else {
+      int[] teleportNodes = IntStream.range(0, nodeCount).filter(i -> teleport[i] > 0.0).toArray();
+      double[] cumulativeTeleport = new double[teleportNodes.length];
+      double sum = 0.0;
+      for (int i = 0; i < teleportNodes.length; i++) {
+        sum += teleport[teleportNodes[i]];
+        cumulativeTeleport[i] = sum;
+      }
+      this.teleportNodes = teleportNodes;
+      this.cumulativeTeleport = cumulativeTeleport;
+    }
+
+    this.tallies = new AtomicLongArray(2 * nodeCount);
+  }
+
+  /** Runs every walk, on the given pool if there is one, or on the calling thread otherwise. */
+  void run(@Nullable ForkJoinPool pool, int parallelism) {
+    var nextBlock = new AtomicInteger();
+    int workerCount = pool == null ? 1 : Math.min(parallelism, blockRandoms.length);
+    Worker[] workers = new Worker[workerCount];
+    for (int i = 0; i < workerCount; i++) {
+      workers[i] = new Worker(nextBlock);
+    }
+    if (pool == null || workerCount <= 1) {
+      for (Worker worker : workers) {
+        worker.run();
+      }
+    } else {
+      ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[workerCount];
+      for (int i = 0; i < workerCount; i++) {
+        tasks[i] = pool.submit(workers[i]);
+      }
+      for (ForkJoinTask<?> task : tasks) {
+        task.join();
+      }
+    }
+
+    for (Worker worker : workers) {
+      totalVisits += worker.totalVisits;
+    }
+  }
+
+  /** Returns the total number of walks. */
+  long walks() {
+    return walks;
+  }
+
+  /** Returns every node's estimated page rank, which is its share of all the visits. */
+  double[] pageRanks() {
+    double[] result = new double[indexedGraph.nodeCount()];
+    if (totalVisits > 0) {
+      for (int node = 0; node < result.length; node++) {
+        result[node] = (double) tallies.get(2 * node) / totalVisits;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the standard error of every node's estimated page rank, as worked out from the sample
+   * variance of the number of times that each walk visited the node.
+   */
+  double[] standardErrors() {
+    double[] result = new double[indexedGraph.nodeCount()];
+    if (walks == 0 || totalVisits == 0) {
+      return result;
+    }
+    // A node's page rank is the mean number of times that a walk visits it, divided by the mean
+    // number of visits that a walk makes.
+    double scale = (double) walks / totalVisits;
+    for (int node = 0; node < result.length; node++) {
+      double mean = (double) tallies.get(2 * node) / walks;
+      double variance = Math.max(0.0, (double) tallies.get(2 * node + 1) / walks - mean * mean);
+      result[node] = scale * Math.sqrt(variance / walks);
+    }
+    return result;
+  }
+
+  /** Runs blocks of walks until there are none left, tallying the visits of its own walks. */
+  private final class Worker implements Runnable {
+    private final AtomicInteger nextBlock;
+    private final int[] successorOffsets = indexedGraph.successorOffsets();
+    private final int[] successors = indexedGraph.successors();
+    private final double @Nullable [] successorWeights = indexedGraph.successorWeights();
+    private final double @Nullable [] outWeights = indexedGraph.outWeights();
+    // The walks in progress: each lane's current node, and the nodes that it has visited so far
+    private final int[] nodes = new int[LANES];
+    private final int[][] paths = new int[LANES][16];
+    private final int[] lengths = new int[LANES];
+    private long totalVisits;
+    // The tallies not yet merged into the shared table, as a hash table with one node per slot,
+    // where -1 marks an empty slot
+    private final int[] bufferNodes = new int[1 << BUFFER_BITS];
+    private final long[] bufferVisits = new long[1 << BUFFER_BITS];
+    private final long[] bufferSquaredVisits = new long[1 << BUFFER_BITS];
+
+    Worker(AtomicInteger nextBlock) {
+      this.nextBlock = nextBlock;
+      Arrays.fill(bufferNodes, -1);
+    }
+
+    @Override
+    public void run() {
+      for (int block = nextBlock.getAndIncrement();
+          block < blockRandoms.length;
+          block = nextBlock.getAndIncrement()) {
+        SplittableRandom random = blockRandoms[block];
+        long nextWalk = (long) block * WALKS_PER_BLOCK;
+        long to = Math.min(walks, nextWalk + WALKS_PER_BLOCK);
+
+        int lanes = 0;
+        while (lanes < LANES && nextWalk < to) {
+          start(lanes++, nextWalk++, random);
+        }
+        while (lanes > 0) {
+          for (int lane = 0; lane < lanes; lane++) {
+            if (step(lane, random)) {
+              continue;
+            }
+            tally(lane);
+            if (nextWalk < to) {
+              start(lane, nextWalk++, random);
+            } else {
+              // Move the last walk into this lane, and step it next.
+              lanes--;
+              nodes[lane] = nodes[lanes];
+              int[] path = paths[lane];
+              paths[lane] = paths[lanes];
+              paths[lanes] = path;
+              lengths[lane] = lengths[lanes];
+              lane--;
+            }
+          }
+        }
+      }
+      flush();
+    }
+
+    private void start(int lane, long walk, SplittableRandom random) {
+      nodes[lane] = teleportNodes == null ? (int) (walk / walksPerNode) : teleportNode(random);
+      lengths[lane] = 0;
+    }
+
+    /** Visits the lane's current node, and returns {@code false} if the walk stops there. */
+    private boolean step(int lane, SplittableRandom random) {
+      int node = nodes[lane];
+      int[] path = paths[lane];
+      int length = lengths[lane];
+      if (length == path.length) {
+        path = Arrays.copyOf(path, length * 2);
+        paths[lane] = path;
+      }
+      path[length] = node;
+      lengths[lane] = length + 1;
+      if (random.nextDouble() >= dampingFactor) {
+        return false;
+      }
+
+      int from = successorOffsets[node];
+      int to = successorOffsets[node + 1];
+      double @Nullable [] successorWeights = this.successorWeights;
+      double @Nullable [] outWeights = this.outWeights;
+      if (successorWeights == null || outWeights == null) {
+        node = from == to ? teleportNode(random) : successors[from + random.nextInt(to - from)];
+      } else if (outWeights[node] == 0.0) {
+        node = teleportNode(random);
+      } else {
+        double target = random.nextDouble() * outWeights[node];
+        int i = from;
+        while (i < to - 1 && (target -= successorWeights[i]) >= 0.0) {
+          i++;
+        }
+        node = successors[i];
+      }
+      nodes[lane] = node;
+      return true;
+    }
+
+    private void tally(int lane) {
+      int[] path = paths[lane];
+      int length = lengths[lane];
+      // Walks are short, so sorting the path is a cheap way to count repeat visits to a node.
+      totalVisits += length;
+      for (int i = 1; i < length; i++) {
+        int node = path[i];
+        int j = i - 1;
+        while (j >= 0 && path[j] > node) {
+          path[j + 1] = path[j];
+          j--;
+        }
+        path[j + 1] = node;
+      }
+      for (int i = 0; i < length; ) {
+        int visited = path[i];
+        int count = 0;
+        do {
+          count++;
+          i++;
+        } while (i < length && path[i] == visited);
+        buffer(visited, count);
+      }
+    }
+
+    /**
+     * Adds a walk's visits to a node to the buffered tallies. If the node's slot holds another
+     * node, then that node's tallies are merged into the shared table first.
+     */
+    private void buffer(int node, int count) {
+      // Fibonacci hashing, which takes the top bits of the product
+      int slot = (node * 0x9E3779B9) >>> (Integer.SIZE - BUFFER_BITS);
+      int buffered = bufferNodes[slot];
+      if (buffered != node) {
+        if (buffered != -1) {
+          merge(buffered, slot);
+        }
+        bufferNodes[slot] = node;
+        bufferVisits[slot] = 0;
+        bufferSquaredVisits[slot] = 0;
+      }
+      bufferVisits[slot] += count;
+      bufferSquaredVisits[slot] += (long) count * count;
+    }
+
+    /** Merges every buffered tally into the shared table. */
+    private void flush() {
+      for (int slot = 0; slot < bufferNodes.length; slot++) {
+        if (bufferNodes[slot] != -1) {
+          merge(bufferNodes[slot], slot);
+          bufferNodes[slot] = -1;
+        }
+      }
+    }
+
+    private void merge(int node, int slot) {
+      tallies.getAndAdd(2 * node, bufferVisits[slot]);
+      tallies.getAndAdd(2 * node + 1, bufferSquaredVisits[slot]);
+    }
+
+    private int teleportNode(SplittableRandom random) {
+      int[] teleportNodes = PageRanksMonteCarlo.this.teleportNodes;
+      double[] cumulativeTeleport = PageRanksMonteCarlo.this.cumulativeTeleport;
+      if (teleportNodes == null || cumulativeTeleport == null) {
+        return random.nextInt(successorOffsets.length - 1);
+      }
+      double target = random.nextDouble() * cumulativeTeleport[cumulativeTeleport.length - 1];
+      int i = Arrays.binarySearch(cumulativeTeleport, target);
+      i = i >= 0 ? i + 1 : -i - 1;
+      return teleportNodes[Math.min(i, teleportNodes.length - 1)];
+    }
+  }
+}
@@ -0,0 +1,433 @@
+package com.github.jbduncan.guavagraphutils;
+
+import static com.github.jbduncan.guavagraphutils.MoreGraphs.NODE_IS_NOT_IN_THIS_GRAPH;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static java.util.Comparator.comparingDouble;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.graph.Graph;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps the page ranks of a graph up to date as its edges and nodes change, for a {@link
+ * MoreGraphs.PageRanksSession}. The kernel keeps its own copy of the graph's structure, and after
+ * each change, corrects the page ranks by <i>residual pushing</i>, a variant of the
+ * Gauss-Southwell method: only the nodes whose page ranks are affected by the change are visited,
+ * so the cost of each change is proportional to how far its effects spread, not to the size of
+ * the graph.
+ *
+ * <p>The kernel maintains the page ranks of a "leaky" variant of PageRank, in which nodes without
+ * successors do not teleport their page rank. These are proportional to the page ranks returned by
+ * {@link MoreGraphs.PageRanksAlgorithm#run()}, so they are normalized to sum to one when read. For
+ * each node, the kernel stores an estimate of its leaky page rank and a residual, which is how much
+ * page rank the node has yet to take in and pass on to its successors. A residual is only pushed
+ * once it exceeds {@code tolerance / n} of the total teleport weight, where {@code tolerance} and
+ * {@code n} are the algorithm's tolerance and the number of nodes when the kernel was created.
+ */
+final class PageRanksPushKernel<N> {
+  private final boolean directed;
+  private final double dampingFactor;
+  private final double pushThreshold;
+  private final boolean uniformTeleport;
+  private final ImmutableMap<N, Double> personalization;
+
+  private final List<N> nodes;
+  private final Map<N, Integer> nodeToIndex;
+  private int nodeCount;
+  private boolean[] present;
+  private int[][] successors;
+  private int[] successorCounts;
+  private int[][] predecessors;
+  private int[] predecessorCounts;
+  private double[] teleport;
+  private double[] estimates;
+  private double[] residuals;
+  private double estimatesSum;
+
+  private int[] queue;
+  private int queueHead;
+  private int queueSize;
+  private boolean[] queued;
+  private long pushes;
+
+  PageRanksPushKernel(
+      Graph<N> graph,
+      IndexedGraph<N> indexedGraph,
+      double[] pageRanks,
+      double dampingFactor,
+      double tolerance,
+      ImmutableMap<N, Double> personalization) {
+    this.directed = graph.isDirected();
+    this.dampingFactor = dampingFactor;
+    this.personalization = personalization;
+    this.uniformTeleport = personalization.isEmpty();
+
+    int nodeCount = indexedGraph.nodeCount();
+    this.nodeCount = nodeCount;
+    this.nodes = new ArrayList<>(nodeCount);
+    this.nodeToIndex = new HashMap<>();
+    int capacity = Math.max(nodeCount, 16);
+    this.present = new boolean[capacity];
+    this.successors = new int[capacity][];
+    this.successorCounts = new int[capacity];
+    this.predecessors = new int[capacity][];
+    this.predecessorCounts = new int[capacity];
+    this.teleport = new double[capacity];
+    this.estimates = new double[capacity];
+    this.residuals = new double[capacity];
+    this.queue = new int[capacity];
+    this.queued = new boolean[capacity];
+
+    double teleportSum = 0.0;
+    for (int node = 0; node < nodeCount; node++) {
+      N value = indexedGraph.node(node);
+      nodes.add(value);
+      nodeToIndex.put(value, node);
+      present[node] = true;
+      predecessors[node] = new int[graph.inDegree(value)];
+      teleport[node] = teleportWeight(value);
+      teleportSum += teleport[node];
+    }
+    for (int node = 0; node < nodeCount; node++) {
+      int[] nodeSuccessors =
+          graph.successors(indexedGraph.node(node)).stream()
+              .mapToInt(indexedGraph::indexOf)
+              .toArray();
+      successors[node] = nodeSuccessors;
+      successorCounts[node] = nodeSuccessors.length;
+      for (int successor : nodeSuccessors) {
+        add(successor, node);
+      }
+    }
+    this.pushThreshold = nodeCount == 0 ? tolerance : tolerance * teleportSum / nodeCount;
+
+    // The leaky page ranks are the given page ranks scaled so that the page rank mass teleported by
+    // the non-dangling nodes alone matches the teleport weights.
+    double danglingSum = 0.0;
+    for (int node = 0; node < nodeCount; node++) {
+      if (successorCounts[node] == 0) {
+        danglingSum += pageRanks[node];
+      }
+    }
+    double teleportedMass = (1 - dampingFactor) + dampingFactor * danglingSum;
+    double scale = teleportedMass == 0.0 ? 0.0 : (1 - dampingFactor) * teleportSum / teleportedMass;
+    for (int node = 0; node < nodeCount; node++) {
+      estimates[node] = pageRanks[node] * scale;
+      estimatesSum += estimates[node];
+    }
+
+    // Calculate the residuals exactly, to pick up any error left over by the power iterations.
+    for (int node = 0; node < nodeCount; node++) {
+      residuals[node] += (1 - dampingFactor) * teleport[node] - estimates[node];
+      int count = successorCounts[node];
+      if (count > 0) {
+        double share = dampingFactor * estimates[node] / count;
+        for (int i = 0; i < count; i++) {
+          residuals[successors[node][i]] += share;
+        }
+      }
+    }
+    for (int node = 0; node < nodeCount; node++) {
+      enqueueIfNeeded(node);
+    }
+    propagate();
+  }
+
+  private double teleportWeight(N node) {
+    return uniformTeleport ? 1.0 : personalization.getOrDefault(node, 0.0);
+  }
+
+  boolean addNode(N node) {
+    requireNonNull(node, "node");
+    Integer existing = nodeToIndex.get(node);
+    if (existing != null && present[existing]) {
+      return false;
+    }
+    int index = existing == null ? newIndex(node) : existing;
+    present[index] = true;
+    teleport[index] = teleportWeight(node);
+    residuals[index] += (1 - dampingFactor) * teleport[index];
+    enqueueIfNeeded(index);
+    propagate();
+    return true;
+  }
+
+  boolean removeNode(N node) {
+    requireNonNull(node, "node");
+    Integer index = nodeToIndex.get(node);
+    if (index == null || !present[index]) {
+      return false;
+    }
+    setSuccessors(index, new int[0]);
+    for (int predecessor : Arrays.copyOf(predecessors[index], predecessorCounts[index])) {
+      setSuccessors(
+          predecessor, without(successors[predecessor], successorCounts[predecessor], index));
+    }
+    // The node is now isolated, so no other node's page rank depends on it any more, and it can
+    // be dropped without pushing anything.
+    teleport[index] = 0.0;
+    estimatesSum -= estimates[index];
+    estimates[index] = 0.0;
+    residuals[index] = 0.0;
+    present[index] = false;
+    propagate();
+    return true;
+  }
+
+  boolean putEdge(N source, N target) {
+    requireNonNull(source, "source");
+    requireNonNull(target, "target");
+    addNode(source);
+    addNode(target);
+    int u = indexOfNode(source);
+    int v = indexOfNode(target);
+    boolean changed = putDirectedEdge(u, v);
+    if (!directed && u != v) {
+      changed |= putDirectedEdge(v, u);
+    }
+    propagate();
+    return changed;
+  }
+
+  boolean removeEdge(N source, N target) {
+    requireNonNull(source, "source");
+    requireNonNull(target, "target");
+    Integer u = nodeToIndex.get(source);
+    Integer v = nodeToIndex.get(target);
+    if (u == null || v == null || !present[u] || !present[v]) {
+      return false;
+    }
+    boolean changed = removeDirectedEdge(u, v);
+    if (!directed && !u.equals(v)) {
+      changed |= removeDirectedEdge(v, u);
+    }
+    propagate();
+    return changed;
+  }
+
+  void update(Graph<N> snapshot) {
+    requireNonNull(snapshot, "snapshot");
+    checkArgument(
+        snapshot.isDirected() == directed,
+        "snapshot.isDirected() is not consistent with the session's graph");
+
+    for (int node = 0; node < nodeCount; node++) {
+      if (present[node] && !snapshot.nodes().contains(nodes.get(node))) {
+        removeNode(nodes.get(node));
+      }
+    }
+    for (N node : snapshot.nodes()) {
+      addNode(node);
+    }
+    for (N node : snapshot.nodes()) {
+      int u = indexOfNode(node);
+      int[] newSuccessors =
+          snapshot.successors(node).stream().mapToInt(this::indexOfNode).toArray();
+      if (!sameElements(successors[u], successorCounts[u], newSuccessors)) {
+        setSuccessors(u, newSuccessors);
+      }
+    }
+    propagate();
+  }
+
+  double rankOf(N node) {
+    requireNonNull(node, "node");
+    Integer index = nodeToIndex.get(node);
+    checkArgument(index != null && present[index], NODE_IS_NOT_IN_THIS_GRAPH, node);
+    return estimatesSum == 0.0 ? 0.0 : estimates[index] / estimatesSum;
+  }
+
+  ImmutableMap<N, Double> ranks() {
+    double estimatesSum = this.estimatesSum;
+    double[] estimates = this.estimates;
+    return IntStream.range(0, nodeCount)
+        .filter(node -> present[node])
+        .boxed()
+        .sorted(comparingDouble((Integer node) -> estimates[node]).reversed())
+        .collect(
+            toImmutableMap(
+                nodes::get,
+                node -> estimatesSum == 0.0 ? 0.0 : estimates[node] / estimatesSum));
+  }
+
+  long pushes() {
+    return pushes;
+  }
+
+  private int indexOfNode(N node) {
+    return requireNonNull(nodeToIndex.get(node));
+  }
+
+  private int newIndex(N node) {
+    if (nodeCount == present.length) {
+      int capacity = present.length * 2;
+      present = Arrays.copyOf(present, capacity);
+      successors = Arrays.copyOf(successors, capacity);
+      successorCounts = Arrays.copyOf(successorCounts, capacity);
+      predecessors = Arrays.copyOf(predecessors, capacity);
+      predecessorCounts = Arrays.copyOf(predecessorCounts, capacity);
+      teleport = Arrays.copyOf(teleport, capacity);
+      estimates = Arrays.copyOf(estimates, capacity);
+      residuals = Arrays.copyOf(residuals, capacity);
+      queued = Arrays.copyOf(queued, capacity);
+      int[] newQueue = new int[capacity];
+      for (int i = 0; i < queueSize; i++) {
+        newQueue[i] = queue[(queueHead + i) % queue.length];
+      }
+      queue = newQueue;
+      queueHead = 0;
+    }
+    int index = nodeCount++;
+    nodes.add(node);
+    nodeToIndex.put(node, index);
+    successors[index] = new int[0];
+    predecessors[index] = new int[0];
+    return index;
+  }
+
+  private boolean putDirectedEdge(int u, int v) {
+    int count = successorCounts[u];
+    if (indexOf(successors[u], count, v) >= 0) {
+      return false;
+    }
+    int[] newSuccessors = Arrays.copyOf(successors[u], count + 1);
+    newSuccessors[count] = v;
+    setSuccessors(u, newSuccessors);
+    return true;
+  }
+
+  private boolean removeDirectedEdge(int u, int v) {
+    if (indexOf(successors[u], successorCounts[u], v) < 0) {
+      return false;
+    }
+    setSuccessors(u, without(successors[u], successorCounts[u], v));
+    return true;
+  }
+
+  /**
+   * Replaces the successors of node {@code u}, and corrects the residuals of its old and new
+   * successors for the page rank that {@code u} has passed on to them so far.
+   */
+  private void setSuccessors(int u, int[] newSuccessors) {
+    int oldCount = successorCounts[u];
+    int[] oldSuccessors = successors[u];
+    double estimate = estimates[u];
+    if (estimate != 0.0) {
+      if (oldCount > 0) {
+        double oldShare = dampingFactor * estimate / oldCount;
+        for (int i = 0; i < oldCount; i++) {
+          residuals[oldSuccessors[i]] -= oldShare;
+          enqueueIfNeeded(oldSuccessors[i]);
+        }
+      }
+      if (newSuccessors.length > 0) {
+        double newShare = dampingFactor * estimate / newSuccessors.length;
+        for (int successor : newSuccessors) {
+          residuals[successor] += newShare;
+          enqueueIfNeeded(successor);
+        }
+      }
+    }
+    for (int i = 0; i < oldCount; i++) {
+      remove(oldSuccessors[i], u);
+    }
+    for (int successor : newSuccessors) {
+      add(successor, u);
+    }
+    successors[u] = newSuccessors;
+    successorCounts[u] = newSuccessors.length;
+  }
+
+  /** Records {@code predecessor} as a predecessor of {@code node}. */
+  private void add(int node, int predecessor) {
+    int count = predecessorCounts[node];
+    if (count == predecessors[node].length) {
+      predecessors[node] = Arrays.copyOf(predecessors[node], Math.max(4, count * 2));
+    }
+    predecessors[node][count] = predecessor;
+    predecessorCounts[node] = count + 1;
+  }
+
+  /** Forgets {@code predecessor} as a predecessor of {@code node}. */
+  private void remove(int node, int predecessor) {
+    int count = predecessorCounts[node];
+    int i = indexOf(predecessors[node], count, predecessor);
+    predecessors[node][i] = predecessors[node][count - 1];
+    predecessorCounts[node] = count - 1;
+  }
+
+  private void enqueueIfNeeded(int node) {
+    if (!queued[node] && Math.abs(residuals[node]) > pushThreshold) {
+      queued[node] = true;
+      queue[(queueHead + queueSize) % queue.length] = node;
+      queueSize++;
+    }
+  }
+
+  /** Pushes residuals until every node's residual is within the push threshold. */
+  private void propagate() {
+    while (queueSize > 0) {
+      int node = queue[queueHead];
+      queueHead = (queueHead + 1) % queue.length;
+      queueSize--;
+      queued[node] = false;
+
+      double residual = residuals[node];
+      if (!present[node] || Math.abs(residual) <= pushThreshold) {
+        continue;
+      }
+      pushes++;
+      residuals[node] = 0.0;
+      estimates[node] += residual;
+      estimatesSum += residual;
+      int count = successorCounts[node];
+      if (count > 0) {
+        double share = dampingFactor * residual / count;
+        int[] nodeSuccessors = successors[node];
+        for (int i = 0; i < count; i++) {
+          int successor = nodeSuccessors[i];
+          residuals[successor] += share;
+          enqueueIfNeeded(successor);
+        }
+      }
+    }
+  }
+
+  private static int indexOf(int[] array, int length, int value) {
+    for (int i = 0; i < length; i++) {
+      if (array[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static int[] without(int[] array, int length, int value) {
+    int[] result = new int[length - 1];
+    int next = 0;
+    for (int i = 0; i < length; i++) {
+      if (array[i] != value) {
+        result[next++] = array[i];
+      }
+    }
+    return result;
+  }
+
+  private static boolean sameElements(int[] array, int length, int[] other) {
+    if (length != other.length) {
+      return false;
+    }
+    int[] sorted = Arrays.copyOf(array, length);
+    int[] otherSorted = other.clone();
+    Arrays.sort(sorted);
+    Arrays.sort(otherSorted);
+    return Arrays.equals(sorted, otherSorted);
+  }
+}
@@ -0,0 +1,89 @@
+package com.github.jbduncan.guavagraphutils;
+
+import java.util.Arrays;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The {@code double} page rank vectors that {@link PageRanksKernel} and {@link
+ * PageRanksCacheBlockedKernel} iterate over: the current page ranks and those of the next
+ * iteration, each node's page rank divided by its out-weight, and the sums of the current page
+ * ranks and of the dangling nodes' page ranks, which decide how much page rank mass is teleported.
+ *
+ * <p>The page ranks start either uniformly or from a given vector, such as the page ranks of an
+ * earlier run.
+ */
+final class PageRanksVectors {
+  private double[] currentPageRanks;
+  private double[] nextPageRanks;
+  // Each node's page rank divided by its out-weight
+  private double[] currentContributions;
+  private double[] nextContributions;
+  private double currentSum;
+  private double currentDanglingSum;
+
+  PageRanksVectors(
+      IndexedGraph<?> indexedGraph,
+      double[] inverseOutWeights,
+      double @Nullable [] initialPageRanks) {
+    int nodeCount = indexedGraph.nodeCount();
+    if (initialPageRanks == null) {
+      this.currentPageRanks = new double[nodeCount];
+      Arrays.fill(currentPageRanks, 1.0 / nodeCount);
+    } else {
+      this.currentPageRanks = initialPageRanks;
+    }
+    this.nextPageRanks = new double[nodeCount];
+    this.currentContributions = new double[nodeCount];
+    double sum = 0.0;
+    for (int node = 0; node < nodeCount; node++) {
+      currentContributions[node] = currentPageRanks[node] * inverseOutWeights[node];
+      sum += currentPageRanks[node];
+    }
+    this.nextContributions = new double[nodeCount];
+    this.currentSum = sum;
+    double danglingSum = 0.0;
+    for (int danglingNode : indexedGraph.danglingNodes()) {
+      danglingSum += currentPageRanks[danglingNode];
+    }
+    this.currentDanglingSum = danglingSum;
+  }
+
+  /**
+   * Returns the page rank mass to teleport in the next iteration. Dangling nodes teleport all their
+   * page rank, and the other nodes teleport {@code (1 - dampingFactor)} of theirs.
+   */
+  double teleportMass(double dampingFactor) {
+    return (1 - dampingFactor) * currentSum + dampingFactor * currentDanglingSum;
+  }
+
+  /**
+   * Makes the next page ranks and contributions the current ones, with the given sums of the page
+   * ranks and of the dangling nodes' page ranks.
+   */
+  void advance(double sum, double danglingSum) {
+    var tmp = currentPageRanks;
+    currentPageRanks = nextPageRanks;
+    nextPageRanks = tmp;
+    tmp = currentContributions;
+    currentContributions = nextContributions;
+    nextContributions = tmp;
+    currentSum = sum;
+    currentDanglingSum = danglingSum;
+  }
+
+  double[] currentPageRanks() {
+    return currentPageRanks;
+  }
+
+  double[] nextPageRanks() {
+    return nextPageRanks;
+  }
+
+  double[] currentContributions() {
+    return currentContributions;
+  }
+
+  double[] nextContributions() {
+    return nextContributions;
+  }
+}
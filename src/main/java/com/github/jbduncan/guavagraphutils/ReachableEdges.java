@@ -0,0 +1,63 @@
+package com.github.jbduncan.guavagraphutils;
+
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.graph.EndpointPair;
+import com.google.common.graph.SuccessorsFunction;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.function.Predicate;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Lazily traverses the edges reachable from a set of starting nodes in breadth-first order, as per
+ * {@link MoreGraphs#buildGraph(Iterable, SuccessorsFunction)}, but without building a graph.
+ *
+ * <p>Each node is looked up once, the first time that it is found, and each of its edges is
+ * returned as it is looked up, so the only state kept is the queue of nodes left to look up, the
+ * successors of the node being looked up, and whatever the visited set keeps. The visited set is a
+ * predicate that marks a node as visited and returns whether it might have been visited before,
+ * so that it can be approximate, like a Bloom filter.
+ */
+// This class purposefully expands upon an unstable Guava API
+@SuppressWarnings("UnstableApiUsage")
+final class ReachableEdges<N> extends AbstractIterator<EndpointPair<N>> {
+  private final SuccessorsFunction<N> successorsFunction;
+  // Returns true if the given node has definitely not been visited before, and marks it as visited
+  private final Predicate<N> visit;
+  private final Queue<N> nodesRemaining = new ArrayDeque<>();
+  private @Nullable N node;
+  private Iterator<N> successors = ImmutableSet.<N>of().iterator();
+
+  ReachableEdges(
+      Iterable<N> startingNodes, SuccessorsFunction<N> successorsFunction, Predicate<N> visit) {
+    this.successorsFunction = successorsFunction;
+    this.visit = visit;
+    for (N startingNode : startingNodes) {
+      if (visit.test(startingNode)) {
+        nodesRemaining.add(startingNode);
+      }
+    }
+  }
+
+  @Override
+  protected @Nullable EndpointPair<N> computeNext() {
+    while (!successors.hasNext()) {
+      N next = nodesRemaining.poll();
+      if (next == null) {
+        return endOfData();
+      }
+      node = next;
+      // Copying the successors into a set removes any duplicates, as a graph would.
+      successors = ImmutableSet.<N>copyOf(successorsFunction.successors(next)).iterator();
+    }
+    N successor = successors.next();
+    if (visit.test(successor)) {
+      nodesRemaining.add(successor);
+    }
+    return EndpointPair.ordered(requireNonNull(node), successor);
+  }
+}
@@ -0,0 +1,101 @@
+package com.github.jbduncan.guavagraphutils;
+
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static java.util.Comparator.comparingDouble;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.stream.IntStream;
+
+/**
+ * Turns page ranks, held as a primitive array indexed by the nodes of an {@link IndexedGraph},
+ * into maps sorted from the highest page rank to the lowest. Nodes with equal page ranks are
+ * sorted by index.
+ */
+final class SortedRanks {
+  /** Returns the page ranks of all nodes. */
+  static <N> ImmutableMap<N, Double> all(IndexedGraph<N> indexedGraph, double[] pageRanks) {
+    return IntStream.range(0, pageRanks.length)
+        .boxed()
+        .sorted(comparingDouble((Integer node) -> pageRanks[node]).reversed())
+        .collect(toImmutableMap(indexedGraph::node, node -> pageRanks[node]));
+  }
+
+  /**
+   * Returns the page ranks of the {@code k} nodes with the highest page ranks, where {@code k} is
+   * less than the number of nodes, in {@code O(n log k)} time.
+   */
+  static <N> ImmutableMap<N, Double> top(IndexedGraph<N> indexedGraph, double[] pageRanks, int k) {
+    // A min-heap of the best k nodes so far, whose root is the worst of them.
+    int[] heap = new int[k];
+    int size = 0;
+    for (int node = 0; node < pageRanks.length; node++) {
+      if (size < k) {
+        heap[size++] = node;
+        siftUp(pageRanks, heap, size - 1);
+      } else if (k > 0 && isBetter(pageRanks, node, heap[0])) {
+        heap[0] = node;
+        siftDown(pageRanks, heap, size);
+      }
+    }
+
+    // Repeatedly take the worst node off the heap, filling the result from the back.
+    int[] sorted = new int[size];
+    while (size > 0) {
+      sorted[size - 1] = heap[0];
+      heap[0] = heap[--size];
+      siftDown(pageRanks, heap, size);
+    }
+    ImmutableMap.Builder<N, Double> result = ImmutableMap.builderWithExpectedSize(sorted.length);
+    for (int node : sorted) {
+      result.put(indexedGraph.node(node), pageRanks[node]);
+    }
+    return result.buildOrThrow();
+  }
+
+  /**
+   * Returns {@code true} if {@code node} is sorted before {@code other}, that is, if it has a
+   * higher page rank, or the same page rank and a lower index.
+   */
+  private static boolean isBetter(double[] pageRanks, int node, int other) {
+    return pageRanks[node] > pageRanks[other]
+        || (pageRanks[node] == pageRanks[other] && node < other);
+  }
+
+  private static void siftUp(double[] pageRanks, int[] heap, int index) {
+    int node = heap[index];
+    while (index > 0) {
+      int parent = (index - 1) >>> 1;
+      if (!isBetter(pageRanks, heap[parent], node)) {
+        break;
+      }
+      heap[index] = heap[parent];
+      index = parent;
+    }
+    heap[index] = node;
+  }
+
+  private static void siftDown(double[] pageRanks, int[] heap, int size) {
+    if (size == 0) {
+      return;
+    }
+    int node = heap[0];
+    int index = 0;
+    while (true) {
+      int child = 2 * index + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && isBetter(pageRanks, heap[child], heap[child + 1])) {
+        child++;
+      }
+      if (!isBetter(pageRanks, node, heap[child])) {
+        break;
+      }
+      heap[index] = heap[child];
+      index = child;
+    }
+    heap[index] = node;
+  }
+
+  private SortedRanks() {}
+}
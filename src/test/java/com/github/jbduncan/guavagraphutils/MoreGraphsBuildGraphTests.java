@@ -3,11 +3,41 @@ package com.github.jbduncan.guavagraphutils;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 
+import com.github.jbduncan.guavagraphutils.MoreGraphs.GraphBuildOptions;
+import com.github.jbduncan.guavagraphutils.MoreGraphs.GraphBuildOptions.Deduplication;
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.graph.EndpointPair;
 import com.google.common.graph.GraphBuilder;
 import com.google.common.graph.ImmutableGraph;
+import com.google.common.graph.SuccessorsFunction;
+import com.google.common.hash.Funnels;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
 @SuppressWarnings({
   // We test a method that purposefully builds upon an unstable Guava API
@@ -138,4 +168,502 @@ class MoreGraphsBuildGraphTests {
         .isInstanceOf(NullPointerException.class)
         .hasMessageContaining("startingNodes");
   }
+
+  @Test
+  void whenBuildingGraphConcurrentlyWithEmptyStartingNodes_thenResultIsEmptyGraph()
+      throws InterruptedException {
+
+    var result = MoreGraphs.buildGraphConcurrently(Set.of(), node -> Set.of("any old node"), 4);
+
+    assertThat(result).isEqualTo(GraphBuilder.directed().allowsSelfLoops(true).immutable().build());
+  }
+
+  @Test
+  void whenBuildingGraphConcurrentlyWithCyclicSuccessorsFunction_thenResultEqualsBuildGraph()
+      throws InterruptedException {
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> node < 1_000 ? List.of(2 * node + 1, 2 * node + 2, node / 2, node) : List.of();
+
+    var result = MoreGraphs.buildGraphConcurrently(Set.of(0), successorsFunction, 8);
+
+    assertThat(result).isEqualTo(MoreGraphs.buildGraph(Set.of(0), successorsFunction));
+  }
+
+  @Test
+  void whenBuildingGraphConcurrentlyOnExecutor_thenEachNodeIsLookedUpOnce()
+      throws InterruptedException {
+    Multiset<Integer> lookups = ConcurrentHashMultiset.create();
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> {
+          lookups.add(node);
+          return node < 100 ? Set.of(node + 1, (node + 1) / 2) : Set.of();
+        };
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    try {
+      var result = MoreGraphs.buildGraphConcurrently(Set.of(0), successorsFunction, executor, 5);
+
+      assertThat(result).isEqualTo(MoreGraphs.buildGraph(Set.of(0), successorsFunction));
+      assertThat(lookups.entrySet()).allSatisfy(entry -> assertThat(entry.getCount()).isOne());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void whenBuildingGraphConcurrentlyAndSuccessorsFunctionThrows_thenExceptionIsRethrown() {
+
+    ThrowingCallable codeUnderTest =
+        () ->
+            MoreGraphs.buildGraphConcurrently(
+                Set.of(1),
+                node -> {
+                  if (node == 3) {
+                    throw new IllegalStateException("lookup failed");
+                  }
+                  return Set.of(node + 1);
+                },
+                2);
+
+    assertThatCode(codeUnderTest)
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("lookup failed");
+  }
+
+  @Test
+  void whenBuildingGraphConcurrentlyWithNonPositiveParallelism_thenIaeIsThrown() {
+
+    ThrowingCallable codeUnderTest =
+        () -> MoreGraphs.buildGraphConcurrently(Set.of(1), __ -> Set.of(), 0);
+
+    assertThatCode(codeUnderTest)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("parallelism must be positive but was 0");
+  }
+
+  @Test
+  void whenBuildingGraphAsync_thenResultEqualsBuildGraph() {
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> node < 1_000 ? List.of(2 * node + 1, 2 * node + 2, node / 2, node) : List.of();
+
+    var result =
+        MoreGraphs.buildGraphAsync(
+            Set.of(0),
+            node -> CompletableFuture.supplyAsync(() -> successorsFunction.successors(node)),
+            16);
+
+    assertThat(result)
+        .succeedsWithin(Duration.ofMinutes(1))
+        .isEqualTo(MoreGraphs.buildGraph(Set.of(0), successorsFunction));
+  }
+
+  @Test
+  void whenBuildingGraphAsync_thenNoMoreThanMaxInFlightLookupsAreInFlight() {
+    Queue<CompletableFuture<Void>> lookups = new ArrayDeque<>();
+
+    var result =
+        MoreGraphs.buildGraphAsync(
+            Set.of(0),
+            node -> {
+              var lookup = new CompletableFuture<Void>();
+              lookups.add(lookup);
+              return lookup.thenApply(
+                  __ -> node < 10 ? Set.of(node * 3 + 1, node * 3 + 2) : Set.<Integer>of());
+            },
+            3);
+
+    int maxInFlight = 0;
+    while (!lookups.isEmpty()) {
+      maxInFlight = Math.max(maxInFlight, lookups.size());
+      lookups.remove().complete(null);
+    }
+
+    assertThat(maxInFlight).isEqualTo(3);
+    assertThat(result).isCompleted();
+  }
+
+  @Test
+  void whenBuildingGraphAsyncAndLookupFails_thenResultFails() {
+    var failure = new IOException("lookup failed");
+
+    var result =
+        MoreGraphs.buildGraphAsync(
+            Set.of(1),
+            node ->
+                node == 3
+                    ? CompletableFuture.<Set<Integer>>failedFuture(failure)
+                    : CompletableFuture.completedFuture(Set.of(node + 1)),
+            2);
+
+    assertThat(result)
+        .failsWithin(Duration.ofMinutes(1))
+        .withThrowableOfType(ExecutionException.class)
+        .withCause(failure);
+  }
+
+  @Test
+  void whenBuildingGraphInBatches_thenResultEqualsBuildGraph() {
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> node < 1_000 ? List.of(2 * node + 1, 2 * node + 2, node / 2, node) : List.of();
+
+    var result =
+        MoreGraphs.buildGraph(
+            Set.of(0),
+            nodes -> Maps.asMap(Set.copyOf(nodes), successorsFunction::successors),
+            64);
+
+    assertThat(result).isEqualTo(MoreGraphs.buildGraph(Set.of(0), successorsFunction));
+  }
+
+  @Test
+  void whenBuildingGraphInBatches_thenEachLevelIsLookedUpInFewestBatches() {
+    List<Collection<Integer>> batches = new ArrayList<>();
+
+    MoreGraphs.buildGraph(
+        Set.of(1),
+        nodes -> {
+          batches.add(List.copyOf(nodes));
+          return Maps.asMap(
+              Set.copyOf(nodes), node -> node < 8 ? List.of(2 * node, 2 * node + 1) : List.of());
+        },
+        3);
+
+    assertThat(batches)
+        .containsExactly(
+            List.of(1),
+            List.of(2, 3),
+            List.of(4, 5, 6),
+            List.of(7),
+            List.of(8, 9, 10),
+            List.of(11, 12, 13),
+            List.of(14, 15));
+  }
+
+  @Test
+  void whenBuildingGraphInBatchesAndNodeIsMissingFromBatch_thenNodeHasNoSuccessors() {
+
+    var result = MoreGraphs.buildGraph(Set.of(1), nodes -> Map.of(1, Set.of(2)), 10);
+
+    assertThat(result)
+        .isEqualTo(GraphBuilder.directed().allowsSelfLoops(true).immutable().putEdge(1, 2).build());
+  }
+
+  @Test
+  void whenBuildingGraphInBatchesWithNonPositiveBatchSize_thenIaeIsThrown() {
+
+    ThrowingCallable codeUnderTest = () -> MoreGraphs.buildGraph(Set.of(1), nodes -> Map.of(), 0);
+
+    assertThatCode(codeUnderTest)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("batchSize must be positive but was 0");
+  }
+
+  @Test
+  void whenBuildingGraphWithDefaultOptions_thenResultEqualsBuildGraphAndSavesNoCalls() {
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> node < 100 ? List.of(2 * node + 1, 2 * node + 2, node / 2) : List.of();
+
+    var result = MoreGraphs.buildGraph(Set.of(0), successorsFunction, new GraphBuildOptions());
+
+    assertThat(result.graph()).isEqualTo(MoreGraphs.buildGraph(Set.of(0), successorsFunction));
+    assertThat(result.successorsCalls()).isEqualTo(1 + result.graph().edges().size());
+    assertThat(result.successorsCallsSaved()).isZero();
+  }
+
+  @Test
+  void whenBuildingGraphWithPerNodeDeduplication_thenEachNodeIsLookedUpOnce() {
+    Multiset<Integer> lookups = HashMultiset.create();
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> {
+          lookups.add(node);
+          return node < 100 ? List.of(2 * node + 1, 2 * node + 2, node / 2) : List.of();
+        };
+
+    var result =
+        MoreGraphs.buildGraph(
+            Set.of(0),
+            successorsFunction,
+            new GraphBuildOptions().withDeduplication(Deduplication.PER_NODE));
+
+    assertThat(result.graph()).isEqualTo(MoreGraphs.buildGraph(Set.of(0), successorsFunction));
+    assertThat(lookups.entrySet()).allSatisfy(entry -> assertThat(entry.getCount()).isOne());
+    assertThat(result.successorsCalls()).isEqualTo(result.graph().nodes().size());
+    assertThat(result.successorsCallsSaved())
+        .isEqualTo(result.graph().edges().size() + 1 - result.graph().nodes().size());
+  }
+
+  @Test
+  void whenBuildingGraphWithMaxDepth_thenResultStopsAtMaxDepth() {
+
+    var result =
+        MoreGraphs.buildGraph(
+            Set.of(1),
+            node -> List.of(2 * node, 2 * node + 1),
+            new GraphBuildOptions().withMaxDepth(2));
+
+    assertThat(result.graph())
+        .isEqualTo(
+            GraphBuilder.directed()
+                .allowsSelfLoops(true)
+                .immutable()
+                .putEdge(1, 2)
+                .putEdge(1, 3)
+                .putEdge(2, 4)
+                .putEdge(2, 5)
+                .putEdge(3, 6)
+                .putEdge(3, 7)
+                .build());
+    assertThat(result.frontier()).containsExactly(4, 5, 6, 7);
+    assertThat(result.complete()).isFalse();
+  }
+
+  @Test
+  void whenBuildingGraphWithDeadlineThatHasPassed_thenResultIsStartingNodes() {
+
+    var result =
+        MoreGraphs.buildGraph(
+            Set.of(1),
+            node -> List.of(node + 1),
+            new GraphBuildOptions().withDeadline(Duration.ZERO));
+
+    assertThat(result.graph())
+        .isEqualTo(GraphBuilder.directed().allowsSelfLoops(true).immutable().addNode(1).build());
+    assertThat(result.frontier()).containsExactly(1);
+    assertThat(result.successorsCalls()).isZero();
+  }
+
+  @ParameterizedTest
+  @EnumSource(Deduplication.class)
+  void whenResumingGraphBuildWithMaxNodesUntilComplete_thenResultEqualsBuildGraph(
+      Deduplication deduplication) {
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> node < 100 ? List.of(2 * node + 1, 2 * node + 2, node / 2) : List.of();
+    var options = new GraphBuildOptions().withDeduplication(deduplication).withMaxNodes(10);
+
+    var result = MoreGraphs.buildGraph(Set.of(0), successorsFunction, options);
+    int pages = 1;
+    while (!result.complete()) {
+      int previousNodeCount = result.graph().nodes().size();
+      result = MoreGraphs.resumeBuildGraph(result, successorsFunction, options);
+      pages++;
+      // Each page may overshoot by the successors of one node.
+      assertThat(result.graph().nodes().size() - previousNodeCount).isLessThanOrEqualTo(10 + 2);
+    }
+
+    assertThat(result.graph()).isEqualTo(MoreGraphs.buildGraph(Set.of(0), successorsFunction));
+    assertThat(result.frontier()).isEmpty();
+    assertThat(pages).isGreaterThan(1);
+  }
+
+  @Test
+  void whenSettingNonPositiveMaxNodes_thenIaeIsThrown() {
+
+    ThrowingCallable codeUnderTest = () -> new GraphBuildOptions().withMaxNodes(0);
+
+    assertThatCode(codeUnderTest)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("maxNodes must be positive but was 0");
+  }
+
+  @Test
+  void whenBuildingCompactGraph_thenResultEqualsBuildGraph() {
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> node < 1_000 ? List.of(2 * node + 1, 2 * node + 2, node / 2, node) : List.of();
+
+    var result = MoreGraphs.buildCompactGraph(Set.of(0), successorsFunction);
+
+    var expected = MoreGraphs.buildGraph(Set.of(0), successorsFunction);
+    assertThat(result).isEqualTo(expected);
+    assertThat(result.nodes())
+        .allSatisfy(
+            node -> {
+              assertThat(result.successors(node)).isEqualTo(expected.successors(node));
+              assertThat(result.predecessors(node)).isEqualTo(expected.predecessors(node));
+              assertThat(result.degree(node)).isEqualTo(expected.degree(node));
+            });
+  }
+
+  @Test
+  void whenBuildingCompactGraphWithDuplicateSuccessors_thenResultHasOneEdgeForEach() {
+
+    var result = MoreGraphs.buildCompactGraph(Set.of(1), node -> List.of(2, 2, 1, 2));
+
+    assertThat(result)
+        .isEqualTo(
+            GraphBuilder.directed()
+                .allowsSelfLoops(true)
+                .immutable()
+                .putEdge(1, 2)
+                .putEdge(1, 1)
+                .putEdge(2, 2)
+                .putEdge(2, 1)
+                .build());
+    assertThat(result.hasEdgeConnecting(1, 2)).isTrue();
+    assertThat(result.hasEdgeConnecting(3, 1)).isFalse();
+  }
+
+  @Test
+  void whenGettingSuccessorsOfNodeNotInCompactGraph_thenIaeIsThrown() {
+    var graph = MoreGraphs.buildCompactGraph(Set.of(1), node -> List.<Integer>of());
+
+    ThrowingCallable codeUnderTest = () -> graph.successors(2);
+
+    assertThatCode(codeUnderTest)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("Node '2' is not in this graph");
+  }
+
+  @Test
+  void whenTraversingReachableEdges_thenEdgesEqualThoseOfBuildGraph() {
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> node < 1_000 ? List.of(2 * node + 1, 2 * node + 2, node / 2, node) : List.of();
+
+    var result = MoreGraphs.traverseReachable(Set.of(0), successorsFunction);
+
+    assertThat(result)
+        .doesNotHaveDuplicates()
+        .containsExactlyInAnyOrderElementsOf(
+            MoreGraphs.buildGraph(Set.of(0), successorsFunction).edges());
+  }
+
+  @Test
+  void whenTraversingReachableEdges_thenSuccessorsAreOnlyLookedUpAsStreamIsConsumed() {
+    Multiset<Integer> lookups = HashMultiset.create();
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> {
+          lookups.add(node);
+          return List.of(node + 1, node + 2);
+        };
+
+    var result = MoreGraphs.traverseReachable(Set.of(0), successorsFunction);
+    assertThat(lookups).isEmpty();
+
+    assertThat(result.limit(3))
+        .containsExactly(
+            EndpointPair.ordered(0, 1), EndpointPair.ordered(0, 2), EndpointPair.ordered(1, 2));
+    assertThat(lookups).containsExactlyInAnyOrder(0, 1);
+  }
+
+  @Test
+  void whenTraversingReachableEdgesWithBloomFilter_thenEdgesEqualThoseOfBuildGraph() {
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> node < 1_000 ? List.of(2 * node + 1, 2 * node + 2, node / 2, node) : List.of();
+
+    var result =
+        MoreGraphs.traverseReachable(
+            Set.of(0), successorsFunction, Funnels.integerFunnel(), 2_001, 1.0e-9);
+
+    assertThat(result)
+        .containsExactlyInAnyOrderElementsOf(
+            MoreGraphs.buildGraph(Set.of(0), successorsFunction).edges());
+  }
+
+  @Test
+  void whenTraversingReachableEdgesWithInvalidFalsePositiveProbability_thenIaeIsThrown() {
+
+    ThrowingCallable codeUnderTest =
+        () ->
+            MoreGraphs.traverseReachable(
+                Set.of(1), __ -> List.<Integer>of(), Funnels.integerFunnel(), 10, 1.0);
+
+    assertThatCode(codeUnderTest)
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("falsePositiveProbability must be between 0 and 1 but was 1.0");
+  }
+
+  @Test
+  void whenResumingGraphBuildAfterCrash_thenResultEqualsBuildGraphAndNodesAreLookedUpOnce(
+      @TempDir Path tempDir) throws IOException {
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> node < 1_000 ? List.of(2 * node + 1, 2 * node + 2, node / 2) : List.of();
+    var checkpointPath = tempDir.resolve("build.log");
+    Multiset<Integer> lookups = HashMultiset.create();
+    SuccessorsFunction<Integer> crashingSuccessorsFunction =
+        node -> {
+          if (lookups.size() == 500) {
+            throw new IllegalStateException("crash");
+          }
+          lookups.add(node);
+          return successorsFunction.successors(node);
+        };
+    ThrowingCallable crashingBuild =
+        () ->
+            MoreGraphs.buildGraphWithCheckpoints(
+                Set.of(0),
+                crashingSuccessorsFunction,
+                checkpointPath,
+                INTEGER_SERIALIZER,
+                Duration.ofDays(1));
+    assertThatCode(crashingBuild).isInstanceOf(IllegalStateException.class).hasMessage("crash");
+
+    var result =
+        MoreGraphs.resumeBuildGraphFromCheckpoint(
+            checkpointPath,
+            node -> {
+              lookups.add(node);
+              return successorsFunction.successors(node);
+            },
+            INTEGER_SERIALIZER,
+            Duration.ZERO);
+
+    assertThat(result).isEqualTo(MoreGraphs.buildGraph(Set.of(0), successorsFunction));
+    assertThat(lookups.entrySet()).allMatch(entry -> entry.getCount() == 1);
+    assertThat(lookups.elementSet()).isEqualTo(result.nodes());
+  }
+
+  @Test
+  void whenResumingGraphBuildWithPartlyWrittenCheckpoint_thenLostLookupsAreRepeated(
+      @TempDir Path tempDir) throws IOException {
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> node < 100 ? List.of(2 * node + 1, 2 * node + 2) : List.of();
+    var checkpointPath = tempDir.resolve("build.log");
+    var expected =
+        MoreGraphs.buildGraphWithCheckpoints(
+            Set.of(0), successorsFunction, checkpointPath, INTEGER_SERIALIZER, Duration.ZERO);
+    try (var channel = FileChannel.open(checkpointPath, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 1);
+    }
+    List<Integer> lookups = new ArrayList<>();
+
+    var result =
+        MoreGraphs.resumeBuildGraphFromCheckpoint(
+            checkpointPath,
+            node -> {
+              lookups.add(node);
+              return successorsFunction.successors(node);
+            },
+            INTEGER_SERIALIZER,
+            Duration.ZERO);
+
+    assertThat(result).isEqualTo(expected);
+    assertThat(lookups).containsExactly(200);
+  }
+
+  @Test
+  void whenResumingGraphBuildFromFileThatIsNotCheckpoint_thenIoExceptionIsThrown(
+      @TempDir Path tempDir) throws IOException {
+    var checkpointPath = Files.write(tempDir.resolve("build.log"), new byte[] {1, 2, 3, 4, 5});
+
+    ThrowingCallable codeUnderTest =
+        () ->
+            MoreGraphs.resumeBuildGraphFromCheckpoint(
+                checkpointPath, __ -> List.of(), INTEGER_SERIALIZER, Duration.ZERO);
+
+    assertThatCode(codeUnderTest)
+        .isInstanceOf(IOException.class)
+        .hasMessage(checkpointPath + " is not a graph build checkpoint");
+  }
+
+  private static final NodeSerializer<Integer> INTEGER_SERIALIZER =
+      new NodeSerializer<>() {
+        @Override
+        public void write(Integer node, DataOutput out) throws IOException {
+          out.writeInt(node);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+          return in.readInt();
+        }
+      };
 }
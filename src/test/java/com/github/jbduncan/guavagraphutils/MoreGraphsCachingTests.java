@@ -0,0 +1,82 @@
+package com.github.jbduncan.guavagraphutils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import com.github.jbduncan.guavagraphutils.CachingSuccessorsFunction.CacheSpec;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.graph.SuccessorsFunction;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+// We test a method that purposefully use an unstable Guava API
+@SuppressWarnings("UnstableApiUsage")
+class MoreGraphsCachingTests {
+  @Test
+  void repeatedTraversalsLookUpEachNodeOnce() {
+    Multiset<Integer> lookups = HashMultiset.create();
+    SuccessorsFunction<Integer> successorsFunction =
+        node -> {
+          lookups.add(node);
+          return node < 50 ? List.of(2 * node + 1, 2 * node + 2) : List.of();
+        };
+    var caching = MoreGraphs.caching(successorsFunction, new CacheSpec());
+
+    var graph = MoreGraphs.buildGraph(Set.of(0), caching);
+    var subgraph = MoreGraphs.buildGraph(Set.of(1), caching);
+    var ordering = MoreGraphs.topologicalOrderingStartingFrom(Set.of(2), caching);
+
+    assertThat(graph).isEqualTo(MoreGraphs.buildGraph(Set.of(0), successorsFunction));
+    assertThat(subgraph).isEqualTo(MoreGraphs.buildGraph(Set.of(1), successorsFunction));
+    assertThat(ordering).first().isEqualTo(2);
+    assertThat(lookups.elementSet()).hasSize(graph.nodes().size());
+    assertThat(caching.stats().missCount()).isEqualTo(graph.nodes().size());
+    assertThat(caching.stats().hitCount()).isPositive();
+  }
+
+  @Test
+  void maximumSizeEvictsSuccessors() {
+    var caching =
+        MoreGraphs.caching(
+            (Integer node) -> List.of(node + 1), new CacheSpec().withMaximumSize(2));
+
+    caching.successors(1);
+    caching.successors(2);
+    caching.successors(3);
+    caching.successors(1);
+
+    assertThat(caching.stats().missCount()).isEqualTo(4);
+    assertThat(caching.stats().evictionCount()).isEqualTo(2);
+  }
+
+  @Test
+  void exceptionsAreRethrownAndNotRemembered() {
+    int[] calls = {0};
+    var caching =
+        MoreGraphs.caching(
+            (Integer node) -> {
+              calls[0]++;
+              throw new IllegalStateException("lookup failed");
+            },
+            new CacheSpec());
+
+    assertThatIllegalStateException()
+        .isThrownBy(() -> caching.successors(1))
+        .withMessage("lookup failed");
+    assertThatIllegalStateException().isThrownBy(() -> caching.successors(1));
+    assertThat(calls[0]).isEqualTo(2);
+  }
+
+  @Test
+  void negativeExpireAfterWriteIsRejected() {
+    var cacheSpec = new CacheSpec();
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> cacheSpec.withExpireAfterWrite(Duration.ofSeconds(-1)))
+        .withMessage("expireAfterWrite must be non-negative but was PT-1S");
+  }
+}
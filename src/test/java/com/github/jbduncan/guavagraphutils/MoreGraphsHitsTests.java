@@ -0,0 +1,180 @@
+package com.github.jbduncan.guavagraphutils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.offset;
+import static org.junit.jupiter.api.Assertions.assertAll;
+
+import com.google.common.graph.Graph;
+import com.google.common.graph.GraphBuilder;
+import com.google.common.graph.ImmutableGraph;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+// We test a method that purposefully use an unstable Guava API
+@SuppressWarnings("UnstableApiUsage")
+class MoreGraphsHitsTests {
+  @Test
+  void starGraphHasOneHubAndEqualAuthorities() {
+    var graph =
+        GraphBuilder.directed()
+            .<String>immutable()
+            .putEdge("hub", "a")
+            .putEdge("hub", "b")
+            .putEdge("hub", "c")
+            .build();
+
+    var hits = MoreGraphs.hits(graph).run();
+
+    assertThat(hits.converged()).isTrue();
+    assertAll(
+        "scores",
+        () -> assertThat(hits.hubOf("hub")).isCloseTo(1.0, offset(1.0e-9)),
+        () -> assertThat(hits.hubOf("a")).isZero(),
+        () -> assertThat(hits.authorityOf("hub")).isZero(),
+        () -> assertThat(hits.authorityOf("a")).isCloseTo(1.0 / 3, offset(1.0e-9)),
+        () -> assertThat(hits.authorityOf("b")).isCloseTo(1.0 / 3, offset(1.0e-9)),
+        () -> assertThat(hits.authorityOf("c")).isCloseTo(1.0 / 3, offset(1.0e-9)));
+  }
+
+  @Test
+  void scoresAreUnchangedByAnotherIteration() {
+    var graph = exampleGraph();
+
+    var hits = MoreGraphs.hits(graph).run();
+
+    assertThat(hits.converged()).isTrue();
+    var hubs = hits.hubs();
+    var authorities = hits.authorities();
+    var nextAuthorities = normalizedSums(graph, node -> graph.predecessors(node), hubs);
+    var nextHubs = normalizedSums(graph, node -> graph.successors(node), authorities);
+    graph
+        .nodes()
+        .forEach(
+            node -> {
+              assertThat(nextHubs.get(node)).isCloseTo(hubs.get(node), offset(1.0e-9));
+              assertThat(nextAuthorities.get(node))
+                  .isCloseTo(authorities.get(node), offset(1.0e-9));
+            });
+  }
+
+  @Test
+  void graphWithRepeatedDominantEigenvalueConverges() {
+    // An out-star and an in-star of the same size give A^T A a repeated dominant eigenvalue.
+    var graph =
+        GraphBuilder.directed()
+            .<String>immutable()
+            .putEdge("hub", "a")
+            .putEdge("hub", "b")
+            .putEdge("hub", "c")
+            .putEdge("x", "authority")
+            .putEdge("y", "authority")
+            .putEdge("z", "authority")
+            .build();
+
+    var evenHits = MoreGraphs.hits(graph).withMaxIterations(100).run();
+    var oddHits = MoreGraphs.hits(graph).withMaxIterations(101).run();
+
+    assertThat(evenHits.converged()).isTrue();
+    assertThat(evenHits.iterations()).isLessThan(100);
+    assertAll(
+        "scores",
+        () -> assertThat(evenHits.hubOf("hub")).isCloseTo(0.25, offset(1.0e-9)),
+        () -> assertThat(evenHits.hubOf("x")).isCloseTo(0.25, offset(1.0e-9)),
+        () -> assertThat(evenHits.authorityOf("a")).isCloseTo(1.0 / 6, offset(1.0e-9)),
+        () -> assertThat(evenHits.authorityOf("authority")).isCloseTo(0.5, offset(1.0e-9)),
+        () -> assertThat(oddHits.hubs()).isEqualTo(evenHits.hubs()),
+        () -> assertThat(oddHits.authorities()).isEqualTo(evenHits.authorities()));
+  }
+
+  @Test
+  void undirectedGraphHasEqualHubAndAuthorityScores() {
+    var graph =
+        GraphBuilder.undirected()
+            .<String>immutable()
+            .putEdge("a", "b")
+            .putEdge("b", "c")
+            .putEdge("c", "a")
+            .putEdge("c", "d")
+            .build();
+
+    var hits = MoreGraphs.hits(graph).run();
+
+    assertThat(hits.converged()).isTrue();
+    graph
+        .nodes()
+        .forEach(
+            node ->
+                assertThat(hits.hubOf(node)).isCloseTo(hits.authorityOf(node), offset(1.0e-9)));
+    assertThat(hits.hubs().keySet()).first().isEqualTo("c");
+  }
+
+  @Test
+  void graphWithoutEdgesHasZeroScores() {
+    var graph = GraphBuilder.directed().<String>immutable().addNode("a").addNode("b").build();
+
+    var hits = MoreGraphs.hits(graph).run();
+
+    assertThat(hits.converged()).isTrue();
+    assertThat(hits.hubs().values()).containsOnly(0.0);
+    assertThat(hits.authorities().values()).containsOnly(0.0);
+  }
+
+  @Test
+  void nodeNotInGraphIsRejected() {
+    var hits = MoreGraphs.hits(exampleGraph()).run();
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> hits.hubOf("z"))
+        .withMessage("Node 'z' is not in this graph");
+  }
+
+  @Test
+  void nonPositiveMaxIterationsIsRejected() {
+    var hits = MoreGraphs.hits(exampleGraph());
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> hits.withMaxIterations(0))
+        .withMessageContaining("maxIterations");
+  }
+
+  private static Map<String, Double> normalizedSums(
+      Graph<String> graph,
+      Function<String, Iterable<String>> neighbours,
+      Map<String, Double> scores) {
+    Map<String, Double> result = new HashMap<>();
+    double sum = 0.0;
+    for (String node : graph.nodes()) {
+      double score = 0.0;
+      for (String neighbour : neighbours.apply(node)) {
+        score += scores.get(neighbour);
+      }
+      result.put(node, score);
+      sum += score;
+    }
+    double total = sum;
+    result.replaceAll((node, score) -> score / total);
+    return result;
+  }
+
+  private static ImmutableGraph<String> exampleGraph() {
+    return GraphBuilder.directed()
+        .<String>immutable()
+        .putEdge("b", "c")
+        .putEdge("c", "b")
+        .putEdge("d", "a")
+        .putEdge("d", "b")
+        .putEdge("e", "b")
+        .putEdge("e", "d")
+        .putEdge("e", "f")
+        .putEdge("f", "b")
+        .putEdge("f", "e")
+        .putEdge("g", "b")
+        .putEdge("g", "e")
+        .putEdge("h", "b")
+        .putEdge("h", "e")
+        .build();
+  }
+}
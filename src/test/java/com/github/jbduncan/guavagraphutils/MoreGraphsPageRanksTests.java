@@ -2,16 +2,36 @@ package com.github.jbduncan.guavagraphutils;
 
 import static java.util.Comparator.reverseOrder;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
 import static org.assertj.core.api.Assertions.offset;
 import static org.junit.jupiter.api.Assertions.assertAll;
 
+import com.github.jbduncan.guavagraphutils.MoreGraphs.PageRanksAlgorithm.NodeOrdering;
+import com.github.jbduncan.guavagraphutils.MoreGraphs.PageRanksAlgorithm.Precision;
+import com.github.jbduncan.guavagraphutils.MoreGraphs.PageRanksAlgorithm.Solver;
+import com.google.common.collect.ImmutableTable;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Streams;
 import com.google.common.graph.GraphBuilder;
+import com.google.common.graph.Graphs;
 import com.google.common.graph.ImmutableGraph;
+import com.google.common.graph.MutableValueGraph;
+import com.google.common.graph.ValueGraphBuilder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 // We test a method that purposefully use an unstable Guava API
 @SuppressWarnings("UnstableApiUsage")
@@ -83,6 +103,643 @@ class MoreGraphsPageRanksTests {
     assertSorted(pageRanks.values());
   }
 
+  @ParameterizedTest
+  @MethodSource("inPlaceSolvers")
+  void inPlaceSolverHasSamePageRanksAsJacobi(Solver solver) {
+    var graph = largeGraph();
+
+    var pageRanks = MoreGraphs.pageRanks(graph).withSolver(solver).run();
+
+    assertThat(pageRanks.converged()).isTrue();
+    assertSamePageRanks(pageRanks.ranks(), MoreGraphs.pageRanks(graph).execute());
+  }
+
+  private static Stream<Solver> inPlaceSolvers() {
+    return Stream.of(Solver.GAUSS_SEIDEL, Solver.sor(0.9), Solver.sor(1.1));
+  }
+
+  @Test
+  void gaussSeidelSolverNeedsFewerIterationsThanJacobi() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var jacobiRun = MoreGraphs.pageRanks(graph).run();
+    var gaussSeidelRun = MoreGraphs.pageRanks(graph).withSolver(Solver.GAUSS_SEIDEL).run();
+
+    assertThat(gaussSeidelRun.iterations()).isLessThan(jacobiRun.iterations());
+    assertSamePageRanks(gaussSeidelRun.ranks(), jacobiRun.ranks());
+  }
+
+  @Test
+  void gaussSeidelSolverSolvesDirectedAcyclicGraphInOneIteration() {
+    var graph =
+        GraphBuilder.directed()
+            .<String>immutable()
+            .putEdge("a", "b")
+            .putEdge("a", "c")
+            .putEdge("b", "c")
+            .putEdge("c", "d")
+            .build();
+
+    var pageRanks = MoreGraphs.pageRanks(graph).withSolver(Solver.GAUSS_SEIDEL).run();
+
+    // The second iteration only confirms that the first one found the page ranks.
+    assertThat(pageRanks.iterations()).isEqualTo(2);
+    assertSamePageRanks(pageRanks.ranks(), MoreGraphs.pageRanks(graph).execute());
+  }
+
+  @Test
+  void sorWithOmegaOutOfRangeIsRejected() {
+    assertAll(
+        () ->
+            assertThatIllegalArgumentException()
+                .isThrownBy(() -> Solver.sor(0.0))
+                .withMessageContaining("omega"),
+        () ->
+            assertThatIllegalArgumentException()
+                .isThrownBy(() -> Solver.sor(2.0))
+                .withMessageContaining("omega"));
+  }
+
+  @Test
+  void floatPrecisionHasSamePageRanksAsDoublePrecisionToWithinRoundingErrors() {
+    var graph = largeGraph();
+
+    var pageRanks =
+        MoreGraphs.pageRanks(graph).withPrecision(Precision.FLOAT).withTolerance(1.0e-6).run();
+
+    assertThat(pageRanks.converged()).isTrue();
+    var expected = MoreGraphs.pageRanks(graph).execute();
+    expected.forEach(
+        (node, pageRank) ->
+            assertThat(pageRanks.rankOf(node)).isCloseTo(pageRank, offset(pageRank * 1.0e-5)));
+    assertThat(pageRanks.topRanks(100).keySet())
+        .containsExactlyElementsOf(Iterables.limit(expected.keySet(), 100));
+  }
+
+  @Test
+  void floatPrecisionStopsAtRoundingErrorsWithoutConvergingIfToleranceIsBelowThem() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var pageRanks =
+        MoreGraphs.pageRanks(graph).withPrecision(Precision.FLOAT).withTolerance(0.0).run();
+
+    assertThat(pageRanks.converged()).isFalse();
+    assertThat(pageRanks.stoppedEarly()).isFalse();
+    assertThat(pageRanks.residual()).isPositive();
+    assertThat(pageRanks.iterations()).isLessThan(MoreGraphs.pageRanks(graph).run().iterations());
+  }
+
+  @ParameterizedTest
+  @EnumSource(NodeOrdering.class)
+  void nodeOrderingDoesNotChangePageRanks(NodeOrdering nodeOrdering) {
+    var graph = largeGraph();
+
+    var pageRanks = MoreGraphs.pageRanks(graph).withNodeOrdering(nodeOrdering).execute();
+
+    assertSamePageRanks(pageRanks, MoreGraphs.pageRanks(graph).execute());
+  }
+
+  @ParameterizedTest
+  @EnumSource(NodeOrdering.class)
+  void cacheBlockingDoesNotChangePageRanks(NodeOrdering nodeOrdering) {
+    // Large enough to be split into several cache blocks
+    var graph = largeGraph(100_000);
+
+    var pageRanks =
+        MoreGraphs.pageRanks(graph)
+            .withCacheBlocking(true)
+            .withNodeOrdering(nodeOrdering)
+            .withParallelism(3)
+            .execute();
+
+    assertSamePageRanks(pageRanks, MoreGraphs.pageRanks(graph).execute());
+  }
+
+  @Test
+  void listenerIsToldOfEveryIteration() {
+    var graph = wikipediaPageRanksExampleGraph();
+    List<Integer> iterations = new ArrayList<>();
+    List<Double> residuals = new ArrayList<>();
+
+    var pageRanks =
+        MoreGraphs.pageRanks(graph)
+            .withListener(
+                (iteration, residual, elapsedNanos) -> {
+                  iterations.add(iteration);
+                  residuals.add(residual);
+                  assertThat(elapsedNanos).isPositive();
+                })
+            .run();
+
+    assertThat(iterations)
+        .isEqualTo(IntStream.rangeClosed(1, pageRanks.iterations()).boxed().toList());
+    assertThat(residuals).last().isEqualTo(pageRanks.residual());
+    assertThat(pageRanks.stoppedEarly()).isFalse();
+  }
+
+  @Test
+  void runPassedItsDeadlineReturnsInitialRanks() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var pageRanks = MoreGraphs.pageRanks(graph).withDeadline(Duration.ZERO).run();
+
+    assertThat(pageRanks.stoppedEarly()).isTrue();
+    assertThat(pageRanks.converged()).isFalse();
+    assertThat(pageRanks.iterations()).isZero();
+    assertThat(pageRanks.ranks().values()).containsOnly(1.0 / graph.nodes().size());
+  }
+
+  @Test
+  void interruptedRunReturnsRanksOfLastIteration() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var pageRanks =
+        MoreGraphs.pageRanks(graph)
+            .withListener(
+                (iteration, residual, elapsedNanos) -> {
+                  if (iteration == 3) {
+                    Thread.currentThread().interrupt();
+                  }
+                })
+            .run();
+
+    assertThat(Thread.interrupted()).isTrue();
+    assertThat(pageRanks.stoppedEarly()).isTrue();
+    assertThat(pageRanks.iterations()).isEqualTo(3);
+    assertSamePageRanks(
+        pageRanks.ranks(), MoreGraphs.pageRanks(graph).withMaxIterations(3).execute());
+  }
+
+  @Test
+  void negativeDeadlineIsRejected() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> MoreGraphs.pageRanks(graph).withDeadline(Duration.ofNanos(-1)))
+        .withMessageContaining("deadline");
+  }
+
+  @Test
+  void topKRanksAreTheFirstKOfAllRanks() {
+    var graph = largeGraph();
+    var pageRanks = MoreGraphs.pageRanks(graph).run();
+
+    var topRanks = pageRanks.topRanks(100);
+
+    assertThat(topRanks.entrySet())
+        .containsExactlyElementsOf(pageRanks.ranks().entrySet().stream().limit(100).toList());
+  }
+
+  @Test
+  void topKRanksWithTiesAreOrderedAsAllRanks() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var topRanks = MoreGraphs.pageRanks(graph).executeTopK(9);
+
+    assertThat(topRanks.entrySet())
+        .containsExactlyElementsOf(
+            MoreGraphs.pageRanks(graph).execute().entrySet().stream().limit(9).toList());
+  }
+
+  @Test
+  void topKRanksWithKLargerThanNodeCountHasAllRanks() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var topRanks = MoreGraphs.pageRanks(graph).executeTopK(100);
+
+    assertThat(topRanks).isEqualTo(MoreGraphs.pageRanks(graph).execute());
+  }
+
+  @Test
+  void negativeKIsRejected() {
+    var pageRanksAlgorithm = MoreGraphs.pageRanks(wikipediaPageRanksExampleGraph());
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> pageRanksAlgorithm.executeTopK(-1))
+        .withMessageContaining("k");
+  }
+
+  @Test
+  void rankOfIsSameAsRanks() {
+    var pageRanks = MoreGraphs.pageRanks(wikipediaPageRanksExampleGraph()).run();
+
+    pageRanks
+        .ranks()
+        .forEach((node, pageRank) -> assertThat(pageRanks.rankOf(node)).isEqualTo(pageRank));
+  }
+
+  @Test
+  void rankOfNodeNotInGraphIsRejected() {
+    var pageRanks = MoreGraphs.pageRanks(wikipediaPageRanksExampleGraph()).run();
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> pageRanks.rankOf("z"))
+        .withMessage("Node 'z' is not in this graph");
+  }
+
+  @Test
+  void emptyGraphHasNoPageRanks() {
+    var graph = GraphBuilder.directed().<String>immutable().build();
+
+    var pageRanks = MoreGraphs.pageRanks(graph).execute();
+
+    assertThat(pageRanks).isEmpty();
+  }
+
+  @Test
+  void danglingNodesSpreadTheirPageRanksAcrossAllNodes() {
+    var graph = GraphBuilder.directed().<String>immutable().putEdge("a", "b").build();
+
+    var pageRanks = MoreGraphs.pageRanks(graph).execute();
+
+    // With damping factor d, a's page rank is 1 / (2 + d) and b's is (1 + d) / (2 + d).
+    assertAll(
+        "page ranks",
+        () -> assertThat(pageRanks.get("a")).isCloseTo(1 / 2.85, offset(1.0e-9)),
+        () -> assertThat(pageRanks.get("b")).isCloseTo(1.85 / 2.85, offset(1.0e-9)));
+  }
+
+  @Test
+  void runStopsOnceResidualIsWithinTolerance() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var result = MoreGraphs.pageRanks(graph).withTolerance(1.0e-9).run();
+
+    assertAll(
+        "result",
+        () -> assertThat(result.converged()).isTrue(),
+        () -> assertThat(result.residual()).isLessThanOrEqualTo(1.0e-9),
+        () -> assertThat(result.iterations()).isBetween(1, 1_000),
+        () -> assertThat(result.ranks().get("b")).isCloseTo(0.384401, offset(1.0e-6)));
+  }
+
+  @Test
+  void runStopsAtMaxIterationsIfResidualIsNotWithinTolerance() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var result = MoreGraphs.pageRanks(graph).withTolerance(0.0).withMaxIterations(3).run();
+
+    assertAll(
+        "result",
+        () -> assertThat(result.converged()).isFalse(),
+        () -> assertThat(result.residual()).isPositive(),
+        () -> assertThat(result.iterations()).isEqualTo(3));
+  }
+
+  @Test
+  void lInfinityResidualNormConvergesToSamePageRanks() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var result =
+        MoreGraphs.pageRanks(graph)
+            .withResidualNorm(MoreGraphs.PageRanksAlgorithm.ResidualNorm.L_INFINITY)
+            .run();
+
+    assertAll(
+        "result",
+        () -> assertThat(result.converged()).isTrue(),
+        () -> assertThat(result.ranks().get("b")).isCloseTo(0.384401, offset(1.0e-6)),
+        () -> assertThat(result.ranks().get("k")).isCloseTo(0.016170, offset(1.0e-6)));
+  }
+
+  @Test
+  void nonPositiveMaxIterationsIsRejected() {
+    var pageRanksAlgorithm = MoreGraphs.pageRanks(wikipediaPageRanksExampleGraph());
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> pageRanksAlgorithm.withMaxIterations(0))
+        .withMessageContaining("maxIterations");
+  }
+
+  @Test
+  void negativeToleranceIsRejected() {
+    var pageRanksAlgorithm = MoreGraphs.pageRanks(wikipediaPageRanksExampleGraph());
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> pageRanksAlgorithm.withTolerance(-1.0))
+        .withMessageContaining("tolerance");
+  }
+
+  @ParameterizedTest
+  @ValueSource(doubles = {-0.1, 1.1, 2.0, Double.NaN})
+  void dampingFactorOutsideZeroToOneIsRejected(double dampingFactor) {
+    var pageRanksAlgorithm = MoreGraphs.pageRanks(wikipediaPageRanksExampleGraph());
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> pageRanksAlgorithm.withDampingFactor(dampingFactor))
+        .withMessageContaining("dampingFactor");
+  }
+
+  @Test
+  void parallelRunHasSamePageRanksAsSequentialRun() {
+    var graph = largeGraph();
+
+    var sequentialPageRanks = MoreGraphs.pageRanks(graph).execute();
+    var parallelPageRanks = MoreGraphs.pageRanks(graph).withParallelism(4).execute();
+
+    assertThat(parallelPageRanks.keySet()).isEqualTo(sequentialPageRanks.keySet());
+    sequentialPageRanks.forEach(
+        (node, pageRank) ->
+            assertThat(parallelPageRanks.get(node)).isCloseTo(pageRank, offset(1.0e-12)));
+  }
+
+  @Test
+  void runOnGivenExecutorHasSamePageRanksAsSequentialRun() {
+    var graph = largeGraph();
+    var executor = new ForkJoinPool(2);
+
+    try {
+      var sequentialPageRanks = MoreGraphs.pageRanks(graph).execute();
+      var parallelPageRanks = MoreGraphs.pageRanks(graph).withExecutor(executor).execute();
+
+      sequentialPageRanks.forEach(
+          (node, pageRank) ->
+              assertThat(parallelPageRanks.get(node)).isCloseTo(pageRank, offset(1.0e-12)));
+      assertThat(executor.isShutdown()).isFalse();
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void nonPositiveParallelismIsRejected() {
+    var pageRanksAlgorithm = MoreGraphs.pageRanks(wikipediaPageRanksExampleGraph());
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> pageRanksAlgorithm.withParallelism(0))
+        .withMessageContaining("parallelism");
+  }
+
+  @Test
+  void uniformPersonalizationHasSamePageRanksAsNoPersonalization() {
+    var graph = wikipediaPageRanksExampleGraph();
+    var personalization = Maps.toMap(graph.nodes(), node -> 2.0);
+
+    var pageRanks = MoreGraphs.pageRanks(graph).execute();
+    var personalizedPageRanks =
+        MoreGraphs.pageRanks(graph).withPersonalization(personalization).execute();
+
+    pageRanks.forEach(
+        (node, pageRank) ->
+            assertThat(personalizedPageRanks.get(node)).isCloseTo(pageRank, offset(1.0e-9)));
+  }
+
+  @Test
+  void personalizationOnlyTeleportsToSeedNodes() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var pageRanks = MoreGraphs.pageRanks(graph).withPersonalization(Set.of("e")).execute();
+
+    assertAll(
+        "page ranks",
+        // "g" to "k" have no predecessors and are not seeds, so nothing ever reaches them.
+        () -> assertThat(pageRanks.get("g")).isZero(),
+        () -> assertThat(pageRanks.get("k")).isZero(),
+        () -> assertThat(pageRanks.get("e")).isGreaterThan(pageRanks.get("d")),
+        () ->
+            assertThat(pageRanks.values().stream().mapToDouble(Double::doubleValue).sum())
+                .isCloseTo(1.0, offset(1.0e-9)));
+  }
+
+  @Test
+  void batchRunHasSamePageRanksAsIndividualRuns() {
+    var graph = largeGraph();
+    List<Map<Integer, Double>> personalizations =
+        List.of(Map.of(1, 1.0), Map.of(2, 1.0, 3, 3.0), Maps.toMap(graph.nodes(), node -> 1.0));
+
+    var batchResults = MoreGraphs.pageRanks(graph).withParallelism(2).runBatch(personalizations);
+
+    assertThat(batchResults).hasSameSizeAs(personalizations);
+    for (int i = 0; i < personalizations.size(); i++) {
+      var batchPageRanks = batchResults.get(i).ranks();
+      assertThat(batchResults.get(i).converged()).isTrue();
+      MoreGraphs.pageRanks(graph)
+          .withPersonalization(personalizations.get(i))
+          .execute()
+          .forEach(
+              (node, pageRank) ->
+                  assertThat(batchPageRanks.get(node)).isCloseTo(pageRank, offset(1.0e-9)));
+    }
+  }
+
+  @Test
+  void personalizationWithNegativeWeightIsRejected() {
+    var pageRanksAlgorithm = MoreGraphs.pageRanks(wikipediaPageRanksExampleGraph());
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> pageRanksAlgorithm.withPersonalization(Map.of("a", -1.0)))
+        .withMessageContaining("personalization");
+  }
+
+  @Test
+  void personalizationWithNodeNotInGraphIsRejected() {
+    var pageRanksAlgorithm =
+        MoreGraphs.pageRanks(wikipediaPageRanksExampleGraph())
+            .withPersonalization(Set.of("not in graph"));
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(pageRanksAlgorithm::run)
+        .withMessageContaining("not in graph");
+  }
+
+  @Test
+  void valueGraphWithUnitWeightsHasSamePageRanksAsGraph() {
+    var graph = wikipediaPageRanksExampleGraph();
+    MutableValueGraph<String, Integer> valueGraph = ValueGraphBuilder.directed().build();
+    graph.nodes().forEach(valueGraph::addNode);
+    graph.edges().forEach(edge -> valueGraph.putEdgeValue(edge, 1));
+
+    var pageRanks = MoreGraphs.pageRanks(graph).execute();
+    var weightedPageRanks = MoreGraphs.pageRanks(valueGraph).execute();
+
+    pageRanks.forEach(
+        (node, pageRank) ->
+            assertThat(weightedPageRanks.get(node)).isCloseTo(pageRank, offset(1.0e-9)));
+  }
+
+  @Test
+  void valueGraphPassesOnPageRanksInProportionToEdgeWeights() {
+    var valueGraph =
+        MoreGraphs.asValueGraph(
+            ImmutableTable.<String, String, Double>builder()
+                .put("a", "b", 1.0)
+                .put("a", "c", 3.0)
+                .buildOrThrow());
+
+    var pageRanks = MoreGraphs.pageRanks(valueGraph).execute();
+
+    // With damping factor d, a's page rank is 1 / (3 + d), and it passes on d / 4 of it to b and
+    // 3d / 4 of it to c.
+    assertAll(
+        "page ranks",
+        () -> assertThat(pageRanks.get("a")).isCloseTo(1 / 3.85, offset(1.0e-9)),
+        () -> assertThat(pageRanks.get("b")).isCloseTo(1.2125 / 3.85, offset(1.0e-9)),
+        () -> assertThat(pageRanks.get("c")).isCloseTo(1.6375 / 3.85, offset(1.0e-9)));
+  }
+
+  @Test
+  void valueGraphWithNegativeEdgeValueIsRejected() {
+    var valueGraph = MoreGraphs.asValueGraph(ImmutableTable.of("a", "b", -1.0));
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> MoreGraphs.pageRanks(valueGraph).execute())
+        .withMessageContaining("non-negative");
+  }
+
+  @Test
+  void runFromInitialRanksOfEarlierRunNeedsFewerIterations() {
+    var graph = Graphs.copyOf(largeGraph());
+    var earlierPageRanks = MoreGraphs.pageRanks(graph).execute();
+    graph.putEdge(3, 20_002);
+
+    var coldRun = MoreGraphs.pageRanks(graph).run();
+    var warmRun = MoreGraphs.pageRanks(graph).withInitialRanks(earlierPageRanks).run();
+
+    assertThat(warmRun.converged()).isTrue();
+    assertThat(warmRun.iterations()).isLessThan(coldRun.iterations());
+    assertSamePageRanks(warmRun.ranks(), coldRun.ranks());
+  }
+
+  @Test
+  void initialRanksAreNotNeededForEveryNode() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var pageRanks =
+        MoreGraphs.pageRanks(graph).withInitialRanks(Map.of("b", 0.5, "z", 1.0)).execute();
+
+    assertSamePageRanks(pageRanks, MoreGraphs.pageRanks(graph).execute());
+  }
+
+  @Test
+  void initialRanksWithNegativePageRankIsRejected() {
+    var pageRanksAlgorithm = MoreGraphs.pageRanks(wikipediaPageRanksExampleGraph());
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> pageRanksAlgorithm.withInitialRanks(Map.of("a", -0.1)))
+        .withMessageContaining("non-negative");
+  }
+
+  @Test
+  void approximatePageRanksAreCloseToExactPageRanks() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var approximatePageRanks = MoreGraphs.pageRanks(graph).approximate(10_000, 42L);
+
+    assertThat(approximatePageRanks.walks()).isEqualTo(110_000L);
+    MoreGraphs.pageRanks(graph)
+        .execute()
+        .forEach(
+            (node, pageRank) -> {
+              assertThat(approximatePageRanks.standardError(node)).isPositive();
+              assertThat(approximatePageRanks.rankOf(node))
+                  .isCloseTo(pageRank, offset(5 * approximatePageRanks.standardError(node)));
+            });
+  }
+
+  @Test
+  void approximatePageRanksDependOnlyOnSeed() {
+    var graph = largeGraph();
+
+    var sequentialPageRanks = MoreGraphs.pageRanks(graph).approximate(2, 7L);
+    var parallelPageRanks = MoreGraphs.pageRanks(graph).withParallelism(4).approximate(2, 7L);
+
+    assertThat(parallelPageRanks.ranks()).isEqualTo(sequentialPageRanks.ranks());
+  }
+
+  @Test
+  void personalizedApproximatePageRanksOnlyTeleportToSeedNodes() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var approximatePageRanks =
+        MoreGraphs.pageRanks(graph).withPersonalization(Set.of("e")).approximate(1_000, 42L);
+
+    assertThat(approximatePageRanks.topRanks(6).keySet())
+        .containsExactlyInAnyOrder("a", "b", "c", "d", "e", "f");
+    assertAll(
+        () -> assertThat(approximatePageRanks.rankOf("g")).isZero(),
+        () -> assertThat(approximatePageRanks.rankOf("k")).isZero());
+  }
+
+  @Test
+  void nonPositiveWalksPerNodeIsRejected() {
+    var pageRanksAlgorithm = MoreGraphs.pageRanks(wikipediaPageRanksExampleGraph());
+
+    assertThatIllegalArgumentException()
+        .isThrownBy(() -> pageRanksAlgorithm.approximate(0, 42L))
+        .withMessageContaining("walksPerNode");
+  }
+
+  @Test
+  void sessionHasSamePageRanksAsRun() {
+    var graph = wikipediaPageRanksExampleGraph();
+
+    var session = MoreGraphs.pageRanks(graph).startSession();
+
+    assertSamePageRanks(session.ranks(), MoreGraphs.pageRanks(graph).execute());
+  }
+
+  @Test
+  void sessionHasSamePageRanksAsRunAfterPuttingEdges() {
+    var graph = Graphs.copyOf(wikipediaPageRanksExampleGraph());
+    var session = MoreGraphs.pageRanks(graph).startSession();
+
+    graph.putEdge("a", "k");
+    session.putEdge("a", "k");
+    graph.putEdge("k", "new");
+    session.putEdge("k", "new");
+
+    assertSamePageRanks(session.ranks(), MoreGraphs.pageRanks(graph).execute());
+    assertThat(session.rankOf("new")).isGreaterThan(0.0);
+  }
+
+  @Test
+  void sessionHasSamePageRanksAsRunAfterRemovingEdgesAndNodes() {
+    var graph = Graphs.copyOf(wikipediaPageRanksExampleGraph());
+    var session = MoreGraphs.pageRanks(graph).startSession();
+
+    graph.removeEdge("c", "b");
+    session.removeEdge("c", "b");
+    graph.removeNode("e");
+    session.removeNode("e");
+
+    assertSamePageRanks(session.ranks(), MoreGraphs.pageRanks(graph).execute());
+    assertThat(session.ranks()).doesNotContainKey("e");
+  }
+
+  @Test
+  void sessionHasSamePageRanksAsRunAfterUpdatingToSnapshot() {
+    var graph = largeGraph();
+    var session = MoreGraphs.pageRanks(graph).startSession();
+    var snapshot = Graphs.copyOf(graph);
+    snapshot.removeNode(42);
+    snapshot.putEdge(7, 20_002);
+    snapshot.putEdge(20_000, 3);
+
+    session.update(snapshot);
+
+    assertSamePageRanks(session.ranks(), MoreGraphs.pageRanks(snapshot).execute());
+  }
+
+  @Test
+  void personalizedSessionOnlyTeleportsToSeedNodes() {
+    var graph = Graphs.copyOf(wikipediaPageRanksExampleGraph());
+    var session = MoreGraphs.pageRanks(graph).withPersonalization(Set.of("e")).startSession();
+
+    graph.putEdge("a", "g");
+    session.putEdge("a", "g");
+
+    assertSamePageRanks(
+        session.ranks(), MoreGraphs.pageRanks(graph).withPersonalization(Set.of("e")).execute());
+  }
+
+  @Test
+  void sessionOnValueGraphIsRejected() {
+    var valueGraph = MoreGraphs.asValueGraph(ImmutableTable.of("a", "b", 1.0));
+    var pageRanksAlgorithm = MoreGraphs.pageRanks(valueGraph);
+
+    assertThatIllegalStateException().isThrownBy(pageRanksAlgorithm::startSession);
+  }
+
   // Based on https://commons.wikimedia.org/wiki/File:PageRanks-Example.svg
   private static ImmutableGraph<String> wikipediaPageRanksExampleGraph() {
     return GraphBuilder.directed()
@@ -107,6 +764,31 @@ class MoreGraphsPageRanksTests {
         .build();
   }
 
+  // Large enough to be split into chunks when run in parallel
+  private static ImmutableGraph<Integer> largeGraph() {
+    return largeGraph(20_000);
+  }
+
+  private static ImmutableGraph<Integer> largeGraph(int nodeCount) {
+    var graph = GraphBuilder.directed().allowsSelfLoops(true).<Integer>immutable();
+    for (int node = 0; node < nodeCount; node++) {
+      graph.putEdge(node, (node + 1) % nodeCount);
+      graph.putEdge(node, (node * 7) % nodeCount);
+      if (node % 3 == 0) {
+        graph.putEdge(node, (node * 13 + 5) % nodeCount);
+      }
+    }
+    // Some dangling nodes
+    graph.putEdge(0, nodeCount).putEdge(1, nodeCount + 1);
+    return graph.build();
+  }
+
+  private static <N> void assertSamePageRanks(Map<N, Double> actual, Map<N, Double> expected) {
+    assertThat(actual.keySet()).isEqualTo(expected.keySet());
+    expected.forEach(
+        (node, pageRank) -> assertThat(actual.get(node)).isCloseTo(pageRank, offset(1.0e-9)));
+  }
+
   private static void assertSorted(Iterable<Double> values) {
     assertThat(values)
         .containsExactlyElementsOf(Streams.stream(values).sorted(reverseOrder()).toList());